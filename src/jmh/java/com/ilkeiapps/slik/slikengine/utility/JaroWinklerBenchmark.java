@@ -0,0 +1,69 @@
+package com.ilkeiapps.slik.slikengine.utility;
+
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// jalankan: mvn -Pjmh test-compile exec:exec
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JaroWinklerBenchmark {
+
+    private static final String[] NAMES = {
+            "SITI AMINAH", "MUHAMMAD RIZKY PRATAMA", "PT MAJU JAYA SENTOSA", "DEWI LESTARI", "AHMAD FAUZI"
+    };
+
+    private final JaroWinklerSimilarity commons = new JaroWinklerSimilarity();
+
+    private String[] left;
+
+    private String[] right;
+
+    @Setup
+    public void setup() {
+        // pasangan mirip seperti baris hasil kombinasi vs data pemohon (typo satu-dua huruf)
+        Random rnd = new Random(7L);
+        left = new String[256];
+        right = new String[256];
+        for (int i = 0; i < left.length; i++) {
+            String name = NAMES[rnd.nextInt(NAMES.length)];
+            char[] c = name.toCharArray();
+            int a = rnd.nextInt(c.length - 1);
+            char t = c[a];
+            c[a] = c[a + 1];
+            c[a + 1] = t;
+            left[i] = name;
+            right[i] = new String(c);
+        }
+    }
+
+    @Benchmark
+    public void jaroWinkler(Blackhole bh) {
+        for (int i = 0; i < left.length; i++) {
+            bh.consume(JaroWinkler.similarity(left[i], right[i]));
+        }
+    }
+
+    @Benchmark
+    public void commonsText(Blackhole bh) {
+        for (int i = 0; i < left.length; i++) {
+            bh.consume(commons.apply(left[i], right[i]));
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.ilkeiapps.slik.slikengine;
 
 import com.ilkeiapps.slik.slikengine.service.AuthService;
 import com.ilkeiapps.slik.slikengine.service.CaptchaService;
+import com.ilkeiapps.slik.slikengine.service.EngineJobService;
+import com.ilkeiapps.slik.slikengine.service.IdebOutboxService;
+import com.ilkeiapps.slik.slikengine.service.M2mOutboxService;
 import com.ilkeiapps.slik.slikengine.service.PlaywrightDriverService;
 import com.ilkeiapps.slik.slikengine.service.ProcessingService;
+import com.ilkeiapps.slik.slikengine.service.ScoringRuleService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -21,6 +25,14 @@ public class CmdLineRunner implements CommandLineRunner {
 
     private PlaywrightDriverService webDriverService;
 
+    private EngineJobService engineJobService;
+
+    private IdebOutboxService idebOutboxService;
+
+    private M2mOutboxService m2mOutboxService;
+
+    private ScoringRuleService scoringRuleService;
+
     @Autowired
     public void setAuthService(AuthService authService) {
         this.authService = authService;
@@ -41,12 +53,42 @@ public class CmdLineRunner implements CommandLineRunner {
         this.webDriverService = webDriverService;
     }
 
+    @Autowired
+    public void setEngineJobService(EngineJobService engineJobService) {
+        this.engineJobService = engineJobService;
+    }
+
+    @Autowired
+    public void setIdebOutboxService(IdebOutboxService idebOutboxService) {
+        this.idebOutboxService = idebOutboxService;
+    }
+
+    @Autowired
+    public void setM2mOutboxService(M2mOutboxService m2mOutboxService) {
+        this.m2mOutboxService = m2mOutboxService;
+    }
+
+    @Autowired
+    public void setScoringRuleService(ScoringRuleService scoringRuleService) {
+        this.scoringRuleService = scoringRuleService;
+    }
+
     @Override
     public void run(String... args) throws Exception {
         log.info("runner");
 
         authService.initLoad();
 
+        engineJobService.recoverRunningJobs();
+
+        idebOutboxService.recoverRunning();
+
+        m2mOutboxService.recoverRunning();
+
+        m2mOutboxService.purgeDone();
+
+        scoringRuleService.refreshAsync();
+
         webDriverService.initDriver();
 
         //captchaService.loadimage();
@@ -56,6 +98,10 @@ public class CmdLineRunner implements CommandLineRunner {
 
         processingService.doLogin();
 
+        if (webDriverService.getSessions().size() > 1) {
+            processingService.loginPooledSessions();
+        }
+
         log.info("ini version terbaru dari combination v.1.0 tanggal 23 Desember 2025");
 
     }
@@ -20,6 +20,8 @@ public class ActivityServicesBean {
     private Long appId;
     private byte[] prevStart;
     private byte[] prevEnd;
+    private Boolean endUnchanged;
+    private String evidenceMediaType;
 
 
 }
@@ -0,0 +1,16 @@
+package com.ilkeiapps.slik.slikengine.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class CaptchaSolveResult {
+
+    private final String text;
+
+    // skor terendah dari semua karakter (0..1)
+    private final double confidence;
+}
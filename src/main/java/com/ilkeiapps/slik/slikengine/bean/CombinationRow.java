@@ -0,0 +1,34 @@
+package com.ilkeiapps.slik.slikengine.bean;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@ToString(includeFieldNames = true)
+public class CombinationRow {
+
+    private int index;
+
+    private int tableCount;
+
+    private boolean hasTbody;
+
+    // td baris pertama tabel data (tabel ke-1)
+    private List<String> cells = new ArrayList<>();
+
+    // td pertama tabel alamat (tabel ke-2)
+    private String address;
+
+    private String checkboxId;
+
+    private boolean hasCheckbox;
+
+    public String cell(int idx) {
+        return idx < cells.size() ? cells.get(idx) : "";
+    }
+}
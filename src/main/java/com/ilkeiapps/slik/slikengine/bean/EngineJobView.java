@@ -0,0 +1,25 @@
+package com.ilkeiapps.slik.slikengine.bean;
+
+import com.ilkeiapps.slik.slikengine.entity.EngineJob;
+import lombok.Getter;
+import lombok.Setter;
+
+// ringkasan job untuk response REST, payload (@Lob) tidak ikut dikirim
+@Setter
+@Getter
+public class EngineJobView {
+
+    private Long id;
+
+    private String segment;
+
+    private String status;
+
+    public static EngineJobView of(EngineJob job) {
+        var view = new EngineJobView();
+        view.setId(job.getId());
+        view.setSegment(job.getSegment());
+        view.setStatus(job.getStatus());
+        return view;
+    }
+}
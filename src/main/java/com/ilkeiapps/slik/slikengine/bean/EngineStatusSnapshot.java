@@ -0,0 +1,43 @@
+package com.ilkeiapps.slik.slikengine.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class EngineStatusSnapshot {
+
+    private final Long id;
+
+    private final String statusEngine;
+
+    private final LocalDateTime lastUpdateEngine;
+
+    private final String currentProcess;
+
+    private final String lastPlaywrigthStatus;
+
+    public EngineStatusSnapshot withStatusEngine(String value) {
+        return new EngineStatusSnapshot(id, value, lastUpdateEngine, currentProcess, lastPlaywrigthStatus);
+    }
+
+    public EngineStatusSnapshot withLastUpdateEngine(LocalDateTime value) {
+        return new EngineStatusSnapshot(id, statusEngine, value, currentProcess, lastPlaywrigthStatus);
+    }
+
+    public EngineStatusSnapshot withCurrentProcess(String value) {
+        return new EngineStatusSnapshot(id, statusEngine, lastUpdateEngine, value, lastPlaywrigthStatus);
+    }
+
+    public EngineStatusSnapshot withLastPlaywrigthStatus(String value) {
+        return new EngineStatusSnapshot(id, statusEngine, lastUpdateEngine, currentProcess, value);
+    }
+
+    public EngineStatusSnapshot withId(Long value) {
+        return new EngineStatusSnapshot(value, statusEngine, lastUpdateEngine, currentProcess, lastPlaywrigthStatus);
+    }
+}
@@ -0,0 +1,30 @@
+package com.ilkeiapps.slik.slikengine.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class ScreenMatch {
+
+    private final String code;
+
+    private final String path;
+
+    private final double maxVal;
+
+    private final int x;
+
+    private final int y;
+
+    private final double threshold;
+
+    // urutan template di definisi, dipakai sebagai tie-breaker saat skor sama
+    private final int order;
+
+    public boolean isMatched() {
+        return maxVal >= threshold;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ilkeiapps.slik.slikengine.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ScreenTemplate {
+
+    private final String code;
+
+    private final String path;
+
+    private final double threshold;
+
+    // area pencarian relatif terhadap screenshot (0..1), default seluruh layar
+    private final double roiX;
+
+    private final double roiY;
+
+    private final double roiWidth;
+
+    private final double roiHeight;
+
+    public ScreenTemplate(String code, String path, double threshold) {
+        this(code, path, threshold, 0d, 0d, 1d, 1d);
+    }
+
+    public boolean isFullFrame() {
+        return roiX <= 0d && roiY <= 0d && roiWidth >= 1d && roiHeight >= 1d;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ilkeiapps.slik.slikengine.bean.scoring;
+
+import lombok.Getter;
+
+@Getter
+public enum ScoringField {
+    NIK(true),
+    NAMA(false),
+    MDN(false),
+    DOB(true),
+    POB(false),
+    ADDR(false);
+
+    private final boolean caseSensitive;
+
+    ScoringField(boolean caseSensitive) {
+        this.caseSensitive = caseSensitive;
+    }
+
+    public String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        String t = s.trim();
+        return caseSensitive ? t : t.toUpperCase();
+    }
+
+    public static ScoringField fromCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (ScoringField f : values()) {
+            if (f.name().equalsIgnoreCase(code.trim())) {
+                return f;
+            }
+        }
+        return null;
+    }
+}
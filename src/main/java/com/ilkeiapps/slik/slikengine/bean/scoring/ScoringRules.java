@@ -0,0 +1,60 @@
+package com.ilkeiapps.slik.slikengine.bean.scoring;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// hasil compile GetScoring: hanya item aktif, di-index per field, tidak berubah setelah dibuat
+@Getter
+@ToString
+public final class ScoringRules {
+
+    public record Rule(int value, double minScore) {
+    }
+
+    private final int globalMinScore;
+
+    private final Map<ScoringField, Rule> rules;
+
+    private final long loadedAt;
+
+    private ScoringRules(int globalMinScore, Map<ScoringField, Rule> rules, long loadedAt) {
+        this.globalMinScore = globalMinScore;
+        this.rules = rules;
+        this.loadedAt = loadedAt;
+    }
+
+    public static ScoringRules compile(GetScoring dto, long loadedAt) {
+        Map<ScoringField, Rule> map = new EnumMap<>(ScoringField.class);
+        if (dto.getItem() != null) {
+            for (ScoringItem it : dto.getItem()) {
+                ScoringField field = ScoringField.fromCode(it.getCode());
+                if (field == null || !it.isActive() || it.getValue() == null || it.getValue() <= 0) {
+                    continue;
+                }
+                map.put(field, new Rule(it.getValue(), it.getMinSkor() == null ? 0.0 : it.getMinSkor()));
+            }
+        }
+        int minScore = dto.getMinSkor() == null ? 0 : dto.getMinSkor();
+        return new ScoringRules(minScore, Collections.unmodifiableMap(map), loadedAt);
+    }
+
+    public Rule get(ScoringField field) {
+        return rules.get(field);
+    }
+
+    public int maxPossible(List<ScoringField> fields) {
+        int max = 0;
+        for (ScoringField f : fields) {
+            Rule r = rules.get(f);
+            if (r != null) {
+                max += r.value();
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ilkeiapps.slik.slikengine.config;
+
+import com.ilkeiapps.slik.slikengine.watcher.CustomerAddFileChangeListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.devtools.filewatch.FileSystemWatcher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "cbas.ideb.watch.enabled", havingValue = "true", matchIfMissing = true)
+public class FileWatcherConfiguration {
+
+    @Value("${cbas.engine.folder}")
+    private String engineFolder;
+
+    @Value("${cbas.ideb.watch.poll-millis:5000}")
+    private Long pollMillis;
+
+    // tunggu file selesai ditulis sebelum listener dipanggil
+    @Value("${cbas.ideb.watch.quiet-millis:2000}")
+    private Long quietMillis;
+
+    @Bean(destroyMethod = "stop")
+    public FileSystemWatcher engineFolderWatcher(CustomerAddFileChangeListener listener) {
+        File folder = new File(engineFolder);
+        if (!folder.exists() && !folder.mkdirs()) {
+            log.warn("engineFolderWatcher >>> gagal membuat folder {}", engineFolder);
+        }
+
+        FileSystemWatcher watcher = new FileSystemWatcher(true, Duration.ofMillis(pollMillis), Duration.ofMillis(quietMillis));
+        watcher.addSourceDirectory(folder);
+        watcher.addListener(listener);
+        watcher.start();
+        log.info("engineFolderWatcher >>> watch folder {}", folder.getAbsolutePath());
+        return watcher;
+    }
+}
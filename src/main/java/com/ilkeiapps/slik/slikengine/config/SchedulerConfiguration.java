@@ -1,12 +1,21 @@
 package com.ilkeiapps.slik.slikengine.config;
 
+import com.ilkeiapps.slik.slikengine.service.EngineFileStore;
+import com.ilkeiapps.slik.slikengine.service.EngineService;
+import com.ilkeiapps.slik.slikengine.service.IdebUploadPipelineService;
+import com.ilkeiapps.slik.slikengine.service.M2mAsyncService;
+import com.ilkeiapps.slik.slikengine.service.OpenCvTemplateRegistry;
+import com.ilkeiapps.slik.slikengine.service.ProcessingService;
 import com.ilkeiapps.slik.slikengine.service.RobotService;
+import com.ilkeiapps.slik.slikengine.service.ScoringRuleService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import static com.ilkeiapps.slik.slikengine.config.TaskSchedulerConfiguration.BACKGROUND_SCHEDULER;
+
 @Slf4j
 @Configuration
 @EnableScheduling
@@ -15,6 +24,20 @@ public class SchedulerConfiguration {
 
     private final RobotService robotService;
 
+    private final ProcessingService processingService;
+
+    private final EngineService engineService;
+
+    private final OpenCvTemplateRegistry templateRegistry;
+
+    private final IdebUploadPipelineService idebUploadPipelineService;
+
+    private final M2mAsyncService m2mAsyncService;
+
+    private final EngineFileStore engineFileStore;
+
+    private final ScoringRuleService scoringRuleService;
+
     @Scheduled(fixedDelayString = "${cbas.scheduler.rate.heartbeat}")
     public void runHeartBeat() {
         try {
@@ -55,6 +78,71 @@ public class SchedulerConfiguration {
         }
     }
 
+    @Scheduled(fixedDelayString = "${cbas.scheduler.rate.status-flush:1000}", scheduler = BACKGROUND_SCHEDULER)
+    public void runStatusFlush() {
+        try {
+            engineService.flushStatus();
+        } catch (Exception e) {
+            log.error("runStatusFlush >>> error", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cbas.scheduler.rate.queue:1000}", scheduler = BACKGROUND_SCHEDULER)
+    public void runQueue() {
+        try {
+            processingService.signalQueue();
+        } catch (Exception e) {
+            log.error("runQueue >>> error", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cbas.scheduler.rate.ideb-upload:5000}", scheduler = BACKGROUND_SCHEDULER)
+    public void runIdebUpload() {
+        try {
+            idebUploadPipelineService.dispatchDue();
+        } catch (Exception e) {
+            log.error("runIdebUpload >>> error", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cbas.scheduler.rate.m2m-outbox:5000}", scheduler = BACKGROUND_SCHEDULER)
+    public void runM2mOutbox() {
+        try {
+            m2mAsyncService.dispatchDue();
+        } catch (Exception e) {
+            log.error("runM2mOutbox >>> error", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cbas.scheduler.rate.file-store-compact:3600000}", scheduler = BACKGROUND_SCHEDULER)
+    public void runFileStoreCompact() {
+        try {
+            engineFileStore.compact();
+        } catch (Exception e) {
+            log.error("runFileStoreCompact >>> error", e);
+        }
+    }
+
+    // refresh sebelum ttl rules habis, supaya proses kombinasi tidak pernah menunggu BE scoring
+    @Scheduled(initialDelayString = "${cbas.scheduler.rate.scoring-refresh:240000}", fixedDelayString = "${cbas.scheduler.rate.scoring-refresh:240000}",
+            scheduler = BACKGROUND_SCHEDULER)
+    public void runScoringRefresh() {
+        try {
+            scoringRuleService.refresh();
+        } catch (Exception e) {
+            log.error("runScoringRefresh >>> error", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cbas.scheduler.rate.template-reload:30000}", scheduler = BACKGROUND_SCHEDULER)
+    public void runTemplateReload() {
+        try {
+            templateRegistry.reloadIfChanged();
+        } catch (Exception e) {
+            log.error("runTemplateReload >>> error", e);
+        }
+    }
+
     @Scheduled(fixedDelayString = "${cbas.scheduler.rate.crash}")
     public void runCheckCrash() {
         try {
@@ -0,0 +1,38 @@
+package com.ilkeiapps.slik.slikengine.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class TaskSchedulerConfiguration {
+
+    public static final String BACKGROUND_SCHEDULER = "backgroundScheduler";
+
+    @Value("${cbas.scheduler.background.pool-size:4}")
+    private Integer backgroundPoolSize;
+
+    // default untuk @Scheduled: task yang menyentuh browser (heartbeat, checkLogin, idle, crash) tetap satu thread,
+    // karena Playwright tidak thread-safe
+    @Bean(name = "taskScheduler", destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        return newScheduler(1, "engine-scheduler-");
+    }
+
+    // loop cepat (status flush, antrian, outbox, compact, refresh) tidak boleh tertahan checkLogin / restart browser
+    @Bean(name = BACKGROUND_SCHEDULER, destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler backgroundScheduler() {
+        return newScheduler(backgroundPoolSize == null || backgroundPoolSize < 1 ? 1 : backgroundPoolSize, "engine-background-");
+    }
+
+    private ThreadPoolTaskScheduler newScheduler(int poolSize, String prefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix(prefix);
+        scheduler.setDaemon(true);
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        scheduler.initialize();
+        return scheduler;
+    }
+}
@@ -26,15 +26,26 @@ public class RobotController {
 
     private final ProcessingService processingService;
 
+    private final EngineJobService engineJobService;
+
+    private final ScoringRuleService scoringRuleService;
+
     @GetMapping(path="ping", produces = MediaType.APPLICATION_JSON_VALUE)
     public ApiResponse<PingResponse> ping() {
         return robotService.ping();
     }
 
-    @Async
     @PostMapping(path="process", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public void process(@RequestBody AppRequestWrapper src) {
-        engineService.process(src);
+    public ApiResponse<EngineJobView> process(@RequestBody AppRequestWrapper src) {
+        return engineService.enqueue(src);
+    }
+
+    @GetMapping(path="queue", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ApiResponse<EngineJobView> queue() {
+        var resp = new ApiResponse<EngineJobView>();
+        resp.setStatus(true);
+        resp.setData(engineJobService.getQueuedJobs().stream().map(EngineJobView::of).toList());
+        return resp;
     }
 
     @Async
@@ -125,6 +136,16 @@ public class RobotController {
         return resp;
     }
 
+    @PostMapping(path="scoring/invalidate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ApiResponse<String> invalidateScoring() {
+        var resp = new ApiResponse<String>();
+        scoringRuleService.invalidate();
+        resp.setStatus(true);
+        resp.setMessage("Refresh scoring rules dipicu");
+        resp.insertNewData("Refresh scoring rules dipicu");
+        return resp;
+    }
+
     @GetMapping(path="/check/statusprocessing/get", produces = MediaType.APPLICATION_JSON_VALUE)
     public ApiResponse<EngineStatus> process() {
         return engine1Service.getEngineService();
@@ -0,0 +1,47 @@
+package com.ilkeiapps.slik.slikengine.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "engine_job")
+public class EngineJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "segment")
+    private String segment;
+
+    @Column(name = "priority")
+    private Integer priority;
+
+    @Column(name = "status")
+    private String status;
+
+    @Lob
+    @Column(name = "payload")
+    private String payload;
+
+    @Column(name = "attempt")
+    private Integer attempt;
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "create_date")
+    private LocalDateTime createDate;
+
+    @Column(name = "start_date")
+    private LocalDateTime startDate;
+
+    @Column(name = "end_date")
+    private LocalDateTime endDate;
+}
@@ -0,0 +1,40 @@
+package com.ilkeiapps.slik.slikengine.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "ideb_extract_index")
+public class IdebExtractIndex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "path", unique = true, length = 1024)
+    private String path;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "mtime")
+    private Long mtime;
+
+    @Column(name = "hash")
+    private String hash;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "extract_date")
+    private LocalDateTime extractDate;
+}
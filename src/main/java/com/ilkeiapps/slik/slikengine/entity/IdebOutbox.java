@@ -0,0 +1,68 @@
+package com.ilkeiapps.slik.slikengine.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "ideb_outbox")
+public class IdebOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+
+    @Column(name = "app_id")
+    private Long appId;
+
+    @Column(name = "no_ref_counter")
+    private String noRefCounter;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    // lokasi akhir di processed/, bisa beda nama dari fileName (dedupe / suffix hash)
+    @Column(name = "processed_path")
+    private String processedPath;
+
+    @Column(name = "upload_target")
+    private String uploadTarget;
+
+    @Column(name = "notify_m2m")
+    private Boolean notifyM2m;
+
+    @Column(name = "uploaded")
+    private Boolean uploaded;
+
+    @Column(name = "done_reported")
+    private Boolean doneReported;
+
+    @Column(name = "callback_sent")
+    private Boolean callbackSent;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "attempt")
+    private Integer attempt;
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "next_attempt")
+    private LocalDateTime nextAttempt;
+
+    @Column(name = "create_date")
+    private LocalDateTime createDate;
+
+    @Column(name = "end_date")
+    private LocalDateTime endDate;
+}
@@ -0,0 +1,58 @@
+package com.ilkeiapps.slik.slikengine.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "m2m_outbox")
+public class M2mOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+
+    @Column(name = "no_ref_counter")
+    private String noRefCounter;
+
+    @Column(name = "id_app_distribute")
+    private Long idAppDistribute;
+
+    @Column(name = "id_app_request")
+    private Long idAppRequest;
+
+    @Column(name = "approval_variable")
+    private String approvalVariable;
+
+    @Column(name = "done_reported")
+    private Boolean doneReported;
+
+    @Column(name = "callback_sent")
+    private Boolean callbackSent;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "attempt")
+    private Integer attempt;
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "next_attempt")
+    private LocalDateTime nextAttempt;
+
+    @Column(name = "create_date")
+    private LocalDateTime createDate;
+
+    @Column(name = "end_date")
+    private LocalDateTime endDate;
+}
@@ -0,0 +1,36 @@
+package com.ilkeiapps.slik.slikengine.playwrigth;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.Page;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@RequiredArgsConstructor
+public class PlaywrigthSession {
+
+    private final int id;
+
+    private final BrowserContext context;
+
+    private final Page page;
+
+    private Frame currentFrame;
+
+    private boolean loggedIn;
+
+    private LocalDateTime leasedAt;
+
+    public boolean isClosed() {
+        try {
+            return page == null || page.isClosed();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+}
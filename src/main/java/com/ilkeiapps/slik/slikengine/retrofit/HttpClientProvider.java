@@ -0,0 +1,199 @@
+package com.ilkeiapps.slik.slikengine.retrofit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HttpClientProvider {
+
+    private final Environment env;
+
+    private final MeterRegistry meterRegistry;
+
+    private OkHttpClient shared;
+
+    // satu connection pool + dispatcher untuk semua service retrofit, setting per endpoint di cbas.http.<name>.*
+    public OkHttpClient newClient(String name, boolean trustAllSsl, HttpLoggingInterceptor.Level defaultLevel, long defaultReadMillis) {
+        OkHttpClient.Builder builder = getShared().newBuilder();
+
+        if (trustAllSsl) {
+            try {
+                final SSLContext sslContext = SSLContext.getInstance(SSLManager.SSL);
+                sslContext.init(null, new TrustManager[]{SSLManager.trustManager}, new java.security.SecureRandom());
+                builder.sslSocketFactory(sslContext.getSocketFactory(), SSLManager.trustManager);
+                builder.hostnameVerifier((hostname, sslSession) -> SSLManager.isVerifiedUrl(hostname));
+            } catch (KeyManagementException | NoSuchAlgorithmException e) {
+                log.warn("httpClient >>> gagal set ssl untuk {}", name, e);
+            }
+        }
+
+        String prefix = "cbas.http." + name + ".";
+        long readTimeout = getLong(prefix + "read-timeout", "cbas.http.read-timeout", defaultReadMillis);
+        builder.connectTimeout(getLong(prefix + "connect-timeout", "cbas.http.connect-timeout", 15_000L), TimeUnit.MILLISECONDS);
+        builder.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
+        builder.writeTimeout(getLong(prefix + "write-timeout", "cbas.http.write-timeout", defaultReadMillis), TimeUnit.MILLISECONDS);
+        builder.followRedirects(true);
+
+        if (env.getProperty(prefix + "resilience.enabled", Boolean.class, true)) {
+            builder.addInterceptor(newResilienceInterceptor(name, readTimeout));
+        }
+
+        if (env.getProperty(prefix + "gzip", Boolean.class, false)) {
+            builder.addInterceptor(new GzipRequestInterceptor());
+        }
+
+        String level = env.getProperty(prefix + "log-level", env.getProperty("cbas.http.log-level", defaultLevel.name()));
+        var logLevel = HttpLoggingInterceptor.Level.valueOf(level.toUpperCase());
+        if (logLevel != HttpLoggingInterceptor.Level.NONE) {
+            builder.addInterceptor(new BinaryAwareLoggingInterceptor(logLevel));
+        }
+
+        return builder.build();
+    }
+
+    // circuit breaker, bulkhead, retry budget dan timeout adaptif per endpoint, setting di cbas.http.<name>.resilience.*
+    private ResilienceInterceptor newResilienceInterceptor(String name, long readTimeout) {
+        String prefix = "cbas.http." + name + ".resilience.";
+        var settings = ResilienceInterceptor.Settings.builder()
+                .window(env.getProperty(prefix + "window", Integer.class, 20))
+                .minCalls(env.getProperty(prefix + "min-calls", Integer.class, 10))
+                .failureRate(env.getProperty(prefix + "failure-rate", Double.class, 0.5d))
+                .openMillis(env.getProperty(prefix + "open-millis", Long.class, 30_000L))
+                .maxConcurrent(env.getProperty(prefix + "max-concurrent", Integer.class, 8))
+                .bulkheadWaitMillis(env.getProperty(prefix + "bulkhead-wait-millis", Long.class, 5_000L))
+                .retryRatio(env.getProperty(prefix + "retry-ratio", Double.class, 0.1d))
+                .maxRetries(env.getProperty(prefix + "max-retries", Integer.class, 2))
+                .adaptiveTimeout(env.getProperty(prefix + "adaptive-timeout", Boolean.class, true))
+                .minTimeoutMillis(env.getProperty(prefix + "min-timeout-millis", Long.class, 10_000L))
+                .maxTimeoutMillis(readTimeout)
+                .build();
+        return new ResilienceInterceptor(name, settings, meterRegistry);
+    }
+
+    private synchronized OkHttpClient getShared() {
+        if (shared == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(env.getProperty("cbas.http.max-requests", Integer.class, 64));
+            dispatcher.setMaxRequestsPerHost(env.getProperty("cbas.http.max-requests-per-host", Integer.class, 16));
+
+            ConnectionPool pool = new ConnectionPool(
+                    env.getProperty("cbas.http.pool.max-idle", Integer.class, 10),
+                    env.getProperty("cbas.http.pool.keep-alive-millis", Long.class, 300_000L),
+                    TimeUnit.MILLISECONDS);
+
+            shared = new OkHttpClient.Builder()
+                    .connectionPool(pool)
+                    .dispatcher(dispatcher)
+                    .retryOnConnectionFailure(true)
+                    .build();
+        }
+        return shared;
+    }
+
+    private long getLong(String key, String fallbackKey, long defaultValue) {
+        Long value = env.getProperty(key, Long.class);
+        if (value != null) {
+            return value;
+        }
+        return env.getProperty(fallbackKey, Long.class, defaultValue);
+    }
+
+    // body multipart / binary hanya di-log header-nya, JSON tetap sesuai level
+    static class BinaryAwareLoggingInterceptor implements Interceptor {
+
+        private final HttpLoggingInterceptor configured;
+
+        private final HttpLoggingInterceptor headersOnly;
+
+        private final boolean bodyLevel;
+
+        BinaryAwareLoggingInterceptor(HttpLoggingInterceptor.Level level) {
+            this.configured = new HttpLoggingInterceptor().setLevel(level);
+            this.headersOnly = new HttpLoggingInterceptor().setLevel(HttpLoggingInterceptor.Level.HEADERS);
+            this.bodyLevel = level == HttpLoggingInterceptor.Level.BODY;
+        }
+
+        @Override
+        public okhttp3.Response intercept(Chain chain) throws IOException {
+            if (bodyLevel && isBinary(chain.request())) {
+                return headersOnly.intercept(chain);
+            }
+            return configured.intercept(chain);
+        }
+
+        private boolean isBinary(Request request) {
+            RequestBody body = request.body();
+            if (body == null || body.contentType() == null) {
+                return false;
+            }
+
+            MediaType type = body.contentType();
+            return "multipart".equals(type.type()) || "image".equals(type.type())
+                    || "application/octet-stream".equals(type.type() + "/" + type.subtype());
+        }
+    }
+
+    // Content-Encoding: gzip untuk body JSON, multipart dibiarkan (PNG / iDeb sudah terkompres)
+    static class GzipRequestInterceptor implements Interceptor {
+
+        @Override
+        public okhttp3.Response intercept(Chain chain) throws IOException {
+            Request original = chain.request();
+            RequestBody body = original.body();
+            if (body == null || original.header("Content-Encoding") != null
+                    || (body.contentType() != null && "multipart".equals(body.contentType().type()))) {
+                return chain.proceed(original);
+            }
+
+            Request compressed = original.newBuilder()
+                    .header("Content-Encoding", "gzip")
+                    .method(original.method(), gzip(body))
+                    .build();
+            return chain.proceed(compressed);
+        }
+
+        private RequestBody gzip(final RequestBody body) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return body.contentType();
+                }
+
+                @Override
+                public long contentLength() {
+                    return -1;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    try (BufferedSink gzipSink = Okio.buffer(new GzipSink(sink))) {
+                        body.writeTo(gzipSink);
+                    }
+                }
+            };
+        }
+    }
+}
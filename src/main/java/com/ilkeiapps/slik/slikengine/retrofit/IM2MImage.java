@@ -17,7 +17,8 @@ public interface IM2MImage {
     @POST("api/m2m/robot/process/log")
     Call<Void> inserLog(@Part("code") RequestBody code,  @Part("name") RequestBody name, @Part("command") RequestBody command,
                         @Part("type") RequestBody type, @Part("element") RequestBody element, @Part("start") RequestBody start,
-                        @Part("end") RequestBody end, @Part("appId") RequestBody appId,  @Part MultipartBody.Part docStart, @Part MultipartBody.Part docEnd);
+                        @Part("end") RequestBody end, @Part("appId") RequestBody appId,  @Part MultipartBody.Part docStart, @Part MultipartBody.Part docEnd,
+                        @Part("endUnchanged") RequestBody endUnchanged);
 
     @Multipart
     @POST("api/m2m/robot/process/incident")
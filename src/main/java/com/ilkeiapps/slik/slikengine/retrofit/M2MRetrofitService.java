@@ -2,7 +2,7 @@ package com.ilkeiapps.slik.slikengine.retrofit;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import okhttp3.OkHttpClient;
+import lombok.RequiredArgsConstructor;
 import okhttp3.logging.HttpLoggingInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -10,19 +10,16 @@ import org.springframework.stereotype.Service;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
 import java.lang.reflect.Proxy;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
 
 @Service
+@RequiredArgsConstructor
 public class M2MRetrofitService {
 
+    private final HttpClientProvider httpClientProvider;
+
     @Value("${cbas.engine.core.endpoint}")
     private String m2mUrl;
 
@@ -34,38 +31,10 @@ public class M2MRetrofitService {
     private Retrofit.Builder providedRetrofitBuilder() {
         return new Retrofit.Builder()
                 .baseUrl(m2mUrl)
-                .client(provideOkHttpClient(provideHttpLoggingInterceptor()))
+                .client(httpClientProvider.newClient("m2m", true, HttpLoggingInterceptor.Level.BODY, 120_000L))
                 .addConverterFactory(GsonConverterFactory.create(provideGson()));
     }
 
-    private OkHttpClient provideOkHttpClient(HttpLoggingInterceptor httpLoggingInterceptor) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-
-        try {
-            final SSLContext sslContext = SSLContext.getInstance(SSLManager.SSL);
-            sslContext.init(null, new TrustManager[]{SSLManager.trustManager}, new java.security.SecureRandom());
-            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-            builder.sslSocketFactory(sslSocketFactory, SSLManager.trustManager);
-            builder.hostnameVerifier((hostname, sslSession) -> SSLManager.isVerifiedUrl(hostname));
-        } catch (KeyManagementException | NoSuchAlgorithmException e) {
-            /* */
-        }
-
-        builder.readTimeout(10, TimeUnit.MINUTES);
-        builder.connectTimeout(10, TimeUnit.MINUTES);
-        builder.followRedirects(true);
-        builder.addInterceptor(httpLoggingInterceptor);
-
-        return builder.build();
-    }
-
-    private HttpLoggingInterceptor provideHttpLoggingInterceptor() {
-        HttpLoggingInterceptor httpLoggingInterceptor = new HttpLoggingInterceptor();
-        httpLoggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        return httpLoggingInterceptor;
-    }
-
-
     private Gson provideGson() {
         return new GsonBuilder()
                 .registerTypeAdapter(LocalDate.class, new LocalDateTypeAdapter())
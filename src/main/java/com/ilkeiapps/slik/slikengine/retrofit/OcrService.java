@@ -2,7 +2,7 @@ package com.ilkeiapps.slik.slikengine.retrofit;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import okhttp3.OkHttpClient;
+import lombok.RequiredArgsConstructor;
 import okhttp3.logging.HttpLoggingInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -11,11 +11,13 @@ import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 import java.lang.reflect.Proxy;
-import java.util.concurrent.TimeUnit;
 
 @Service
+@RequiredArgsConstructor
 public class OcrService {
 
+    private final HttpClientProvider httpClientProvider;
+
     @Value("${cbas.engine.core.endpoint}")
     private String m2mUrl;
 
@@ -30,27 +32,10 @@ public class OcrService {
     private Retrofit.Builder providedRetrofitBuilder() {
         return new Retrofit.Builder()
                 .baseUrl(captchaUrl)
-                .client(provideOkHttpClient(provideHttpLoggingInterceptor()))
+                .client(httpClientProvider.newClient("ocr", false, HttpLoggingInterceptor.Level.BODY, 60_000L))
                 .addConverterFactory(GsonConverterFactory.create(provideGson()));
     }
 
-    private static OkHttpClient provideOkHttpClient(HttpLoggingInterceptor httpLoggingInterceptor) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.readTimeout(10, TimeUnit.MINUTES);
-        builder.connectTimeout(10, TimeUnit.MINUTES);
-        builder.followRedirects(true);
-        builder.addInterceptor(httpLoggingInterceptor);
-
-        return builder.build();
-    }
-
-    private static HttpLoggingInterceptor provideHttpLoggingInterceptor() {
-        HttpLoggingInterceptor httpLoggingInterceptor = new HttpLoggingInterceptor();
-        httpLoggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        return httpLoggingInterceptor;
-    }
-
-
     private static Gson provideGson() {
         return new GsonBuilder().setPrettyPrinting()
                 .create();
@@ -0,0 +1,314 @@
+package com.ilkeiapps.slik.slikengine.retrofit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class ResilienceInterceptor implements Interceptor {
+
+    public static final int CLOSED = 0;
+    public static final int OPEN = 1;
+    public static final int HALF_OPEN = 2;
+
+    @Getter
+    @Builder
+    public static class Settings {
+        private final int window;
+        private final int minCalls;
+        private final double failureRate;
+        private final long openMillis;
+        private final int maxConcurrent;
+        private final long bulkheadWaitMillis;
+        private final double retryRatio;
+        private final int maxRetries;
+        private final boolean adaptiveTimeout;
+        private final long minTimeoutMillis;
+        private final long maxTimeoutMillis;
+    }
+
+    private final String name;
+
+    private final Settings settings;
+
+    // hasil call terakhir (true = gagal), ring buffer ukuran window
+    private final boolean[] outcomes;
+    private int outcomeIdx;
+    private int outcomeCount;
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    private final Semaphore bulkhead;
+
+    // budget retry: setiap request menambah retryRatio token, setiap retry memakai 1 token
+    private double retryTokens;
+
+    // window latency per method + path: inserLog kecil dan uploadIdeb besar di client yang sama tidak saling menarik timeout
+    private final Map<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter shortCircuitCounter;
+    private final Counter bulkheadRejectCounter;
+    private final Counter retryCounter;
+    private final Timer latencyTimer;
+
+    public ResilienceInterceptor(String name, Settings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.outcomes = new boolean[Math.max(1, settings.getWindow())];
+        this.bulkhead = new Semaphore(Math.max(1, settings.getMaxConcurrent()));
+        this.meterRegistry = meterRegistry;
+
+        successCounter = meterRegistry.counter("slik.http.calls", "endpoint", name, "outcome", "success");
+        failureCounter = meterRegistry.counter("slik.http.calls", "endpoint", name, "outcome", "failure");
+        shortCircuitCounter = meterRegistry.counter("slik.http.calls", "endpoint", name, "outcome", "short_circuited");
+        bulkheadRejectCounter = meterRegistry.counter("slik.http.calls", "endpoint", name, "outcome", "bulkhead_rejected");
+        retryCounter = meterRegistry.counter("slik.http.retries", "endpoint", name);
+        latencyTimer = meterRegistry.timer("slik.http.latency", "endpoint", name);
+        List<Tag> tags = List.of(Tag.of("endpoint", name));
+        meterRegistry.gauge("slik.http.circuit.state", tags, state, AtomicInteger::get);
+        meterRegistry.gauge("slik.http.bulkhead.available", tags, bulkhead, Semaphore::availablePermits);
+    }
+
+    private static class LatencyWindow {
+        private final long[] latencies = new long[128];
+        private int idx;
+        private int count;
+        private volatile long timeoutMillis;
+
+        LatencyWindow(long initialTimeoutMillis) {
+            this.timeoutMillis = initialTimeoutMillis;
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        boolean probe = acquirePermission();
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(settings.getBulkheadWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseProbe(probe);
+            throw new IOException("interrupted waiting for " + name + " bulkhead", e);
+        }
+        if (!acquired) {
+            bulkheadRejectCounter.increment();
+            releaseProbe(probe);
+            throw new IOException("bulkhead " + name + " penuh");
+        }
+
+        try {
+            depositRetryToken();
+            return proceedWithRetry(chain);
+        } finally {
+            bulkhead.release();
+            releaseProbe(probe);
+        }
+    }
+
+    public int getState() {
+        return state.get();
+    }
+
+    private Response proceedWithRetry(Chain chain) throws IOException {
+        // multipart (upload iDeb / screenshot) ukurannya bervariasi, tetap pakai read timeout client
+        LatencyWindow window = settings.isAdaptiveTimeout() && !isMultipart(chain.request()) ? latencyWindow(chain.request()) : null;
+        int attempt = 0;
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                Chain timed = window != null
+                        ? chain.withReadTimeout((int) window.timeoutMillis, TimeUnit.MILLISECONDS)
+                        : chain;
+                Response response = timed.proceed(chain.request());
+                long elapsed = System.nanoTime() - start;
+                latencyTimer.record(elapsed, TimeUnit.NANOSECONDS);
+
+                if (response.code() >= 500) {
+                    record(true);
+                    if (response.code() == 503 && attempt < settings.getMaxRetries() && takeRetryToken()) {
+                        response.close();
+                        attempt++;
+                        backoff(attempt);
+                        continue;
+                    }
+                    return response;
+                }
+
+                record(false);
+                if (window != null) {
+                    recordLatency(window, elapsed);
+                }
+                return response;
+            } catch (IOException e) {
+                record(true);
+                // retry hanya jika request pasti belum sampai ke server
+                if (isConnectFailure(e) && attempt < settings.getMaxRetries() && takeRetryToken()) {
+                    attempt++;
+                    backoff(attempt);
+                    continue;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private boolean acquirePermission() throws IOException {
+        if (state.get() == OPEN) {
+            if (System.currentTimeMillis() - openedAt.get() < settings.getOpenMillis()) {
+                shortCircuitCounter.increment();
+                throw new IOException("circuit " + name + " open");
+            }
+            state.compareAndSet(OPEN, HALF_OPEN);
+        }
+
+        if (state.get() == HALF_OPEN) {
+            // hanya satu request percobaan saat half-open
+            if (!probeInFlight.compareAndSet(false, true)) {
+                shortCircuitCounter.increment();
+                throw new IOException("circuit " + name + " half-open");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void releaseProbe(boolean probe) {
+        if (probe) {
+            probeInFlight.set(false);
+        }
+    }
+
+    private synchronized void record(boolean failure) {
+        if (failure) {
+            failureCounter.increment();
+        } else {
+            successCounter.increment();
+        }
+
+        if (state.get() == HALF_OPEN) {
+            if (failure) {
+                open();
+            } else {
+                state.set(CLOSED);
+                outcomeCount = 0;
+                outcomeIdx = 0;
+                log.info("resilience >>> circuit {} closed", name);
+            }
+            return;
+        }
+
+        outcomes[outcomeIdx] = failure;
+        outcomeIdx = (outcomeIdx + 1) % outcomes.length;
+        outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+
+        if (outcomeCount >= settings.getMinCalls()) {
+            int failures = 0;
+            for (int i = 0; i < outcomeCount; i++) {
+                if (outcomes[i]) {
+                    failures++;
+                }
+            }
+            if ((double) failures / outcomeCount >= settings.getFailureRate()) {
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        if (state.getAndSet(OPEN) != OPEN) {
+            log.warn("resilience >>> circuit {} open selama {} ms", name, settings.getOpenMillis());
+        }
+        openedAt.set(System.currentTimeMillis());
+        outcomeCount = 0;
+        outcomeIdx = 0;
+    }
+
+    private synchronized void depositRetryToken() {
+        retryTokens = Math.min(10d, retryTokens + settings.getRetryRatio());
+    }
+
+    private synchronized boolean takeRetryToken() {
+        if (retryTokens < 1d) {
+            return false;
+        }
+        retryTokens -= 1d;
+        retryCounter.increment();
+        return true;
+    }
+
+    private LatencyWindow latencyWindow(Request request) {
+        String route = request.method() + " " + request.url().encodedPath();
+        return latencyWindows.computeIfAbsent(route, r -> {
+            var window = new LatencyWindow(settings.getMaxTimeoutMillis());
+            meterRegistry.gauge("slik.http.timeout.adaptive", List.of(Tag.of("endpoint", name), Tag.of("route", r)),
+                    window, w -> w.timeoutMillis);
+            return window;
+        });
+    }
+
+    // timeout mengikuti p99 latency sukses x4 per route, dibatasi min/max
+    private void recordLatency(LatencyWindow window, long elapsedNanos) {
+        synchronized (window) {
+            window.latencies[window.idx] = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            window.idx = (window.idx + 1) % window.latencies.length;
+            window.count = Math.min(window.count + 1, window.latencies.length);
+
+            if (window.count >= 20 && window.idx % 10 == 0) {
+                long[] sorted = Arrays.copyOf(window.latencies, window.count);
+                Arrays.sort(sorted);
+                long p99 = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.99) - 1)];
+                window.timeoutMillis = Math.max(settings.getMinTimeoutMillis(), Math.min(settings.getMaxTimeoutMillis(), p99 * 4));
+            }
+        }
+    }
+
+    private boolean isMultipart(Request request) {
+        RequestBody body = request.body();
+        MediaType type = body == null ? null : body.contentType();
+        return type != null && "multipart".equals(type.type());
+    }
+
+    private boolean isConnectFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof UnknownHostException || e instanceof NoRouteToHostException;
+    }
+
+    private void backoff(int attempt) throws IOException {
+        try {
+            Thread.sleep(200L * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted during retry backoff", e);
+        }
+    }
+}
@@ -2,18 +2,27 @@ package com.ilkeiapps.slik.slikengine.service;
 
 import com.ilkeiapps.slik.slikengine.bean.ActivityServicesBean;
 import com.ilkeiapps.slik.slikengine.retrofit.IM2MImage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import retrofit2.Response;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -24,34 +33,155 @@ public class ActivityServices {
 
     private final CommonProcessingService commonProcessingService;
 
+    private final MeterRegistry meterRegistry;
+
+    private final EvidenceEncoderService evidenceEncoderService;
+
     private static final String TEXT_PLAIN = "text/plain";
 
-    private static final String IMAGE_PNG = "image/png";
+    private static final DateTimeFormatter LOG_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Value("${cbas.activity.queue.capacity:200}")
+    private Integer queueCapacity;
+
+    // di atas persentase ini log tidak diambil screenshot-nya dan tidak dikirim
+    @Value("${cbas.activity.queue.high-water:0.8}")
+    private Double highWater;
+
+    @Value("${cbas.activity.batch-size:10}")
+    private Integer batchSize;
+
+    private LinkedBlockingQueue<ActivityServicesBean> queue;
+    private Thread sender;
+    private volatile boolean running;
+
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    private Counter shedCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        meterRegistry.gauge("slik.activity.queue.depth", queue, LinkedBlockingQueue::size);
+        sentCounter = meterRegistry.counter("slik.activity.sent");
+        failedCounter = meterRegistry.counter("slik.activity.failed");
+        droppedCounter = meterRegistry.counter("slik.activity.dropped");
+        shedCounter = meterRegistry.counter("slik.activity.shed");
+
+        running = true;
+        sender = new Thread(this::sendLoop, "activity-log-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        sender.interrupt();
+        try {
+            sender.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
     public ActivityServicesBean start(String robotName) {
         var obj = new ActivityServicesBean();
         obj.setRobotName(robotName);
         obj.setStart(LocalDateTime.now());
-        obj.setPrevStart(commonProcessingService.screenshot());
+        if (!isUnderPressure()) {
+            obj.setPrevStart(commonProcessingService.screenshot(evidenceEncoderService.isFullPage()));
+        }
         return obj;
     }
 
     public void stop(ActivityServicesBean obj) {
         try {
             obj.setEnd(LocalDateTime.now());
-            obj.setPrevEnd(commonProcessingService.screenshot());
-            this.insertLog(obj);
+
+            // antrian hampir penuh (atau screenshot start sudah dilewati): log di-drop, bukan dikirim tanpa docStart/docEnd
+            // karena M2M belum menerima inserLog tanpa kedua part tersebut
+            if (isUnderPressure() || obj.getPrevStart() == null) {
+                shedCounter.increment();
+                log.debug("activityLog >>> antrian hampir penuh, log {} di-drop", obj.getName());
+                return;
+            }
+
+            // bean bisa dipakai ulang pemanggil, jadi yang diubah & masuk antrian salinannya
+            var copy = copyOf(obj);
+            copy.setPrevEnd(commonProcessingService.screenshot(evidenceEncoderService.isFullPage()));
+
+            if (!queue.offer(copy)) {
+                droppedCounter.increment();
+                log.warn("activityLog >>> antrian penuh, log {} di-drop", obj.getName());
+            }
         } catch (Exception e) {
             log.error("Error inserting log: {}", e.getMessage());
         }
+    }
+
+    private ActivityServicesBean copyOf(ActivityServicesBean src) {
+        var obj = new ActivityServicesBean();
+        obj.setRobotName(src.getRobotName());
+        obj.setCode(src.getCode());
+        obj.setName(src.getName());
+        obj.setCommand(src.getCommand());
+        obj.setType(src.getType());
+        obj.setElement(src.getElement());
+        obj.setStart(src.getStart());
+        obj.setEnd(src.getEnd());
+        obj.setAppId(src.getAppId());
+        obj.setPrevStart(src.getPrevStart());
+        obj.setPrevEnd(src.getPrevEnd());
+        return obj;
+    }
+
+    private boolean isUnderPressure() {
+        return queue.size() >= queueCapacity * highWater;
+    }
+
+    private void sendLoop() {
+        List<ActivityServicesBean> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ActivityServicesBean first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (ActivityServicesBean bean : batch) {
+                    send(bean);
+                }
+            } catch (InterruptedException e) {
+                if (!running && queue.isEmpty()) {
+                    break;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("activityLog >>> sender berhenti");
+    }
 
+    private void send(ActivityServicesBean bean) {
+        try {
+            evidenceEncoderService.encode(bean);
+            this.insertLog(bean);
+            sentCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("Error inserting log: {}", e.getMessage());
+        }
     }
 
     private void insertLog(ActivityServicesBean bean) throws IOException {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
         MediaType textPlain = MediaType.parse(TEXT_PLAIN);
-        MediaType imagePng = MediaType.parse(IMAGE_PNG);
+        MediaType imageType = MediaType.parse(bean.getEvidenceMediaType() == null
+                ? EvidenceEncoderService.IMAGE_PNG : bean.getEvidenceMediaType());
 
         RequestBody code = null;
         RequestBody name = null;
@@ -77,18 +207,24 @@ public class ActivityServices {
         }
 
         if (bean.getStart() != null) {
-            lst = RequestBody.create(fmt.format(bean.getStart()), textPlain);
+            lst = RequestBody.create(LOG_DATE_FORMAT.format(bean.getStart()), textPlain);
         }
 
         if (bean.getEnd() != null) {
-            len = RequestBody.create(fmt.format(bean.getEnd()), textPlain);
+            len = RequestBody.create(LOG_DATE_FORMAT.format(bean.getEnd()), textPlain);
         }
 
-        RequestBody fileStart = RequestBody.create(bean.getPrevStart(), imagePng);
-        MultipartBody.Part bodyStart = MultipartBody.Part.createFormData("docStart", "st", fileStart);
+        MultipartBody.Part bodyStart = null;
+        if (bean.getPrevStart() != null) {
+            RequestBody fileStart = RequestBody.create(bean.getPrevStart(), imageType);
+            bodyStart = MultipartBody.Part.createFormData("docStart", "st", fileStart);
+        }
 
-        RequestBody fileEnd = RequestBody.create(bean.getPrevEnd(), imagePng);
-        MultipartBody.Part bodyEnd = MultipartBody.Part.createFormData("docEnd", "ed", fileEnd);
+        MultipartBody.Part bodyEnd = null;
+        if (bean.getPrevEnd() != null) {
+            RequestBody fileEnd = RequestBody.create(bean.getPrevEnd(), imageType);
+            bodyEnd = MultipartBody.Part.createFormData("docEnd", "ed", fileEnd);
+        }
 
         Long appId = bean.getAppId();
         if (appId == null) {
@@ -96,7 +232,12 @@ public class ActivityServices {
         }
         RequestBody app = RequestBody.create(appId.toString(), textPlain);
 
-        var call = m2mImageService.inserLog(code, name, command, type, null, lst, len, app, bodyStart, bodyEnd);
+        RequestBody unchanged = null;
+        if (Boolean.TRUE.equals(bean.getEndUnchanged())) {
+            unchanged = RequestBody.create("true", textPlain);
+        }
+
+        var call = m2mImageService.inserLog(code, name, command, type, null, lst, len, app, bodyStart, bodyEnd, unchanged);
         Response<Void> response = call.execute();
         if (!response.isSuccessful()) {
             log.warn("insertLog failed: HTTP {}", response.code());
@@ -26,8 +26,10 @@ public class ApprovalProcessingService {
     private final CaptchaService captchaService;
     private final CommonProcessingService commonProcessingService;
     private final IM2M m2mService;
+    private final M2mAsyncService m2mAsyncService;
     private final EngineService engineService;
     private final ActivityServices activityServices;
+    private final PageWaitService pageWaitService;
 
     private static final String FORM_APPROVAL = "Form Approval";
     private static final String CRASH = "CRASH";
@@ -168,10 +170,7 @@ public class ApprovalProcessingService {
 
             driver.waitForLoadState(LoadState.LOAD);
 
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("approval [{}] >>> interrupted after click Cari Data Untuk di setujui", req.getNoRefCounter(), e);
+            pageWaitService.waitBlockLayerGone(frame, "approval.search");
         } catch (Exception e) {
             log.error("approval [{}] >>> Fail to click button Cari Data Untuk di setujui", req.getNoRefCounter(), e);
         } finally {
@@ -207,12 +206,7 @@ public class ApprovalProcessingService {
             Locator cap = frame.locator("#captcha");
             cap.fill(cap2);
 
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("approval [{}] >>> error while sleeping before captcha submit", req.getNoRefCounter(), e);
-            }
+            pageWaitService.waitBlockLayerGone(frame, "approval.before-submit");
         } finally {
             sLog.setName(FORM_APPROVAL);
             sLog.setAppId(req.getId());
@@ -230,40 +224,34 @@ public class ApprovalProcessingService {
         var sLog = activityServices.start(this.robotName);
         try {
             for (DownloadBean id : ids) {
-                try {
-                    log.info("approval >>> send request for noref: {}", id.getNoRefCounter());
-                    String script = """
-                            asyncCallContent('CI00350261', {
-                                'MENU_ID': 81643,
-                                'ACTION_TYPE_CODE': 'UP001',
-                                '__ACTIONLOG': true,
-                                '__KEY': 'APPROVED_FLAG,INQUIRY_ID',
-                                '__BEFORE_APPROVE_FLAG': 'Y',
-                                '__BEFORE_USER_REF_CODE': '%s',
-                                'APPROVED_FLAG': 'Y',
-                                'INQUIRY_ID': '%s'
-                            });
-                            """.formatted(id.getNoRefCounter(), id.getInqId());
-
-                    frame.evaluate(script);
-
-                    ProcessReportRequest pp = new ProcessReportRequest();
-                    pp.setStatusCode(id.getNoRefCounter());
-
-                    SubmitRequest sr = new SubmitRequest();
-                    sr.setIdAppRequest(id.getId());
-                    sr.setApprovalVariable("APPR");
-
-                    log.info("readTable [{}] >>> set status approval done with payload: {}", req.getNoRefCounter(), pp);
-                    var cl = m2mService.approvalDone(pp);
-                    cl.execute();
-
-                    log.info("readTable [{}] >>> callback with payload: {}", req.getNoRefCounter(), sr);
-                    var cl2 = m2mService.processCallback(sr);
-                    cl2.execute();
-                } catch (IOException e) {
-                    log.error("approval [{}] >>> error when calling M2M services for noref {}", req.getNoRefCounter(), id.getNoRefCounter(), e);
-                }
+                log.info("approval >>> send request for noref: {}", id.getNoRefCounter());
+                String script = """
+                        asyncCallContent('CI00350261', {
+                            'MENU_ID': 81643,
+                            'ACTION_TYPE_CODE': 'UP001',
+                            '__ACTIONLOG': true,
+                            '__KEY': 'APPROVED_FLAG,INQUIRY_ID',
+                            '__BEFORE_APPROVE_FLAG': 'Y',
+                            '__BEFORE_USER_REF_CODE': '%s',
+                            'APPROVED_FLAG': 'Y',
+                            'INQUIRY_ID': '%s'
+                        });
+                        """.formatted(id.getNoRefCounter(), id.getInqId());
+
+                frame.evaluate(script);
+
+                ProcessReportRequest pp = new ProcessReportRequest();
+                pp.setStatusCode(id.getNoRefCounter());
+
+                SubmitRequest sr = new SubmitRequest();
+                sr.setIdAppRequest(id.getId());
+                sr.setApprovalVariable("APPR");
+
+                log.info("readTable [{}] >>> set status approval done with payload: {}", req.getNoRefCounter(), pp);
+                m2mAsyncService.send(id.getNoRefCounter(), "approvalDone", () -> m2mService.approvalDone(pp));
+
+                log.info("readTable [{}] >>> callback with payload: {}", req.getNoRefCounter(), sr);
+                m2mAsyncService.send(id.getNoRefCounter(), "processCallback", () -> m2mService.processCallback(sr));
             }
         } finally {
             sLog.setName(FORM_APPROVAL);
@@ -298,23 +286,16 @@ public class ApprovalProcessingService {
     private void verifySubmitWithScreenshot(AppRequest req) {
         log.info("approval [{}] >>> cross check modal popup dan dialog setelah submit data ke slik", req.getNoRefCounter());
 
-        byte[] sc = commonProcessingService.screenshot();
-        String stat = commonProcessingService.checkScreenshot(sc);
+        String stat = commonProcessingService.detectScreen();
         log.info("approval [{}] >>> checkscreentshot {}", req.getNoRefCounter(), stat);
 
         if (!"NONE".equals(stat)) {
             log.info("approval [{}] >>> processing {} wrong action", req.getNoRefCounter(), req.getNoRefCounter());
             webDriverService.refresh();
 
-            try {
-                Thread.sleep(5_000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("approval [{}] >>> Gagal sleep2", req.getNoRefCounter(), e);
-            }
+            pageWaitService.waitSettled(webDriverService.getDriver(), webDriverService.getFrame("main"), "approval.wrong-action");
 
-            byte[] ss = commonProcessingService.screenshot();
-            stat = commonProcessingService.checkScreenshot(ss);
+            stat = commonProcessingService.detectScreen();
 
             if (!"NONE".equals(stat)) {
                 engineService.setCurrentStatusEngine(CRASH);
@@ -423,13 +404,9 @@ public class ApprovalProcessingService {
 
             target.click(new Locator.ClickOptions().setTimeout(5000));
             driver.waitForLoadState(LoadState.LOAD);
-            Thread.sleep(1000L);
+            pageWaitService.waitBlockLayerGone(webDriverService.getFrame("main"), "approval.page");
 
             success = true;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("approval [{}] >>> interrupted saat pindah ke halaman {}", req.getNoRefCounter(), pageNumber, e);
-            engineService.setCurrentStatusEngine(CRASH);
         } catch (Exception e) {
             log.error("approval [{}] >>> gagal pindah ke halaman {}", req.getNoRefCounter(), pageNumber, e);
             engineService.setCurrentStatusEngine(CRASH);
@@ -4,7 +4,6 @@ import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.ilkeiapps.slik.slikengine.bean.AuthAckPayload;
 import com.ilkeiapps.slik.slikengine.bean.RobotTokenView;
 import com.ilkeiapps.slik.slikengine.entity.EngineConfig;
-import com.ilkeiapps.slik.slikengine.entity.EngineStatus;
 import com.ilkeiapps.slik.slikengine.entity.QEngineConfig;
 import com.ilkeiapps.slik.slikengine.retrofit.IM2M;
 import jakarta.persistence.EntityManager;
@@ -30,6 +29,8 @@ public class AuthService {
 
     private final IM2M m2mService;
 
+    private final EngineService engineService;
+
     @Value("${cbas.engine.name}")
     private String robotName;
 
@@ -53,11 +54,13 @@ public class AuthService {
         upsertConfig(qsg, "RFIND", "Metode Pencarian",    rbv.getRobotFind());
     }
 
+    // DB berupa file, jadi baris status run sebelumnya (mis. PROCESSING) di-reset lewat EngineService, bukan ditambah baris baru;
+    // kalau tidak, snapshot tetap membaca baris lama dan antrian job tidak pernah jalan lagi setelah restart
     private void persistInitialEngineStatus() {
-        var es = new EngineStatus();
-        es.setStatusEngine("INITIAL");
-        es.setLastUpdateEngine(LocalDateTime.now());
-        this.em.persist(es);
+        engineService.setCurrentStatusEngine("INITIAL");
+        engineService.setCurrentProcess(null);
+        engineService.setLastUpdate(LocalDateTime.now());
+        engineService.flushStatus();
     }
 
     private RobotTokenView fetchRobotTokenView() {
@@ -9,6 +9,7 @@ import com.microsoft.playwright.Frame;
 import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.TimeoutError;
+import com.microsoft.playwright.options.WaitForSelectorState;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -39,6 +40,8 @@ public class BatchProcessingService {
 
     private final ActivityServices activityService;
 
+    private final PageWaitService pageWaitService;
+
     @Value("${cbas.engine.folder}")
     private String engineFolder;
 
@@ -168,7 +171,6 @@ public class BatchProcessingService {
             if (permintaanDataTop.count() > 0) {
                 permintaanDataTop.first().click(new Locator.ClickOptions().setTimeout(5000));
                 driver.waitForLoadState();
-                driver.waitForTimeout(500);
             } else {
                 log.warn("maetheexecutor >>> link 'Permintaan Data' tidak ditemukan, lanjut ke left menu");
             }
@@ -177,7 +179,7 @@ public class BatchProcessingService {
             log.info("maetheexecutor >>> tunggu #left-menu muncul");
             Locator leftMenu = frame.locator("#left-menu");
             leftMenu.waitFor(new Locator.WaitForOptions().setTimeout(4000)); // tunggu max 10 detik
-            driver.waitForTimeout(200);
+            pageWaitService.waitBlockLayerGone(frame, "batch.left-menu");
 
             // lalu klik "Permintaan iDeb Batch"
             log.info("maetheexecutor >>> open menu kiri 'Permintaan iDeb Batch'");
@@ -198,7 +200,7 @@ public class BatchProcessingService {
             }
 
             batchMenuLabel.first().click(new Locator.ClickOptions().setTimeout(5000));
-            driver.waitForTimeout(500); // tunggu submenu expand (ul.collapse.in)
+            pageWaitService.waitForState(leftMenu.locator("ul.collapse.in").first(), WaitForSelectorState.VISIBLE, "batch.submenu");
 
             // STEP 3: klik submenu "Upload File Batch"
             log.info("maetheexecutor >>> click submenu 'Upload File Batch'");
@@ -209,8 +211,7 @@ public class BatchProcessingService {
             uploadFileBatch.waitFor(new Locator.WaitForOptions().setTimeout(5000));
             uploadFileBatch.first().click(new Locator.ClickOptions().setTimeout(5000));
 
-            driver.waitForLoadState();
-            driver.waitForTimeout(1000);
+            pageWaitService.waitSettled(driver, frame, "batch.upload-menu");
             return true;
 
         } catch (TimeoutError e) {
@@ -358,8 +359,7 @@ public class BatchProcessingService {
     }
 
     private boolean isScreenshotStatusNone() {
-        byte[] sc = commonProcessingService.screenshot();
-        String stat = commonProcessingService.checkScreenshot(sc);
+        String stat = commonProcessingService.detectScreen();
         log.info("maetheexecutor >>> screenshot status after submit: {}", stat);
         return "NONE".equals(stat);
     }
@@ -0,0 +1,352 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.microsoft.playwright.APIResponse;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Route;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// route layer BrowserContext: resource pihak ketiga non-esensial diblok, asset statis SLIK (css/js/font) dilayani
+// dari cache disk (direvalidasi dengan ETag/Last-Modified) supaya reload (doRefresh) tidak download ulang lewat proxy.
+// hanya url pihak ketiga & asset yang bisa di-cache yang di-route, request lain (dokumen, xhr, captcha, download)
+// tidak pernah lewat handler ini
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BrowserRouteService {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cbas.slik.route.enabled:true}")
+    private Boolean enabled;
+
+    // hanya untuk host pihak ketiga; resource dari host SLIK tidak pernah diblok karena template OpenCV
+    // (mis. login1.png dengan foto background) & gambar captcha berasal dari sana
+    @Value("${cbas.slik.route.block-types:image,media}")
+    private String blockTypesConfig;
+
+    // dicocokkan termasuk subdomain (ojk.go.id -> slik.ojk.go.id)
+    @Value("${cbas.slik.route.slik-hosts:ojk.go.id}")
+    private String slikHostsConfig;
+
+    // analytics / tracker pihak ketiga, dicocokkan dengan contains pada url
+    @Value("${cbas.slik.route.block-urls:google-analytics.com,googletagmanager.com,doubleclick.net,hotjar.com}")
+    private String blockUrlsConfig;
+
+    // url pihak ketiga yang tidak boleh diblok walaupun tipenya ada di block-types
+    @Value("${cbas.slik.route.allow-urls:}")
+    private String allowUrlsConfig;
+
+    @Value("${cbas.slik.route.cache.enabled:true}")
+    private Boolean cacheEnabled;
+
+    @Value("${cbas.slik.route.cache.types:stylesheet,script,font}")
+    private String cacheTypesConfig;
+
+    @Value("${cbas.slik.route.cache.hosts:slik.ojk.go.id}")
+    private String cacheHostsConfig;
+
+    // hanya path dengan ekstensi ini yang di-route untuk cache, supaya request SLIK lain tidak ikut di-intercept
+    @Value("${cbas.slik.route.cache.extensions:css,js,woff,woff2,ttf}")
+    private String cacheExtensionsConfig;
+
+    @Value("${cbas.slik.route.cache.folder:}")
+    private String cacheFolderConfig;
+
+    @Value("${cbas.engine.folder}")
+    private String engineFolder;
+
+    private static final String DOCUMENT = "document";
+    private static final String CONTENT_TYPE = "content-type";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String METRIC = "slik.route";
+    private static final String METRIC_BYTES = "slik.route.bytes.saved";
+
+    private Set<String> blockTypes;
+    private Set<String> blockUrls;
+    private Set<String> allowUrls;
+    private Set<String> cacheTypes;
+    private Set<String> cacheHosts;
+    private Set<String> cacheExtensions;
+    private Set<String> slikHosts;
+    private Path cacheDir;
+
+    @PostConstruct
+    public void init() {
+        blockTypes = toSet(blockTypesConfig);
+        blockUrls = toSet(blockUrlsConfig);
+        allowUrls = toSet(allowUrlsConfig);
+        cacheTypes = toSet(cacheTypesConfig);
+        cacheHosts = toSet(cacheHostsConfig);
+        cacheExtensions = toSet(cacheExtensionsConfig);
+        slikHosts = toSet(slikHostsConfig);
+
+        // asset-cache sengaja di luar folder download supaya tidak ikut terbaca watcher
+        if (cacheFolderConfig == null || cacheFolderConfig.isBlank()) {
+            Path engine = Paths.get(engineFolder).toAbsolutePath();
+            cacheDir = (engine.getParent() != null ? engine.getParent() : engine).resolve("asset-cache");
+        } else {
+            cacheDir = Paths.get(cacheFolderConfig);
+        }
+
+        if (Boolean.TRUE.equals(enabled) && Boolean.TRUE.equals(cacheEnabled)) {
+            try {
+                Files.createDirectories(cacheDir);
+            } catch (Exception e) {
+                log.error("browserRoute >>> gagal membuat folder cache {}, cache dimatikan", cacheDir, e);
+                cacheEnabled = false;
+            }
+        }
+        log.info("browserRoute >>> enabled={}, block={}, cache={} ({})", enabled, blockTypes, cacheEnabled, cacheDir);
+    }
+
+    // playwright mematikan HTTP cache chromium selama ada route, jadi route dibuat sesempit mungkin:
+    // hanya url pihak ketiga yang mungkin diblok & asset SLIK yang dilayani dari cache disk
+    public void install(BrowserContext ctx) {
+        if (!Boolean.TRUE.equals(enabled)) {
+            return;
+        }
+        try {
+            if (!blockTypes.isEmpty() || !blockUrls.isEmpty()) {
+                ctx.route(this::isThirdParty, this::handleThirdParty);
+            }
+            if (Boolean.TRUE.equals(cacheEnabled) && !cacheTypes.isEmpty() && !cacheExtensions.isEmpty()) {
+                ctx.route(this::isCacheableAsset, this::handleAsset);
+            }
+        } catch (Exception e) {
+            log.warn("browserRoute >>> gagal pasang route, lanjut tanpa filter: {}", e.getMessage());
+        }
+    }
+
+    private boolean isThirdParty(String url) {
+        String host = hostOf(url);
+        return host != null && !isSlikHost(host) && !containsAny(url.toLowerCase(Locale.ROOT), allowUrls);
+    }
+
+    private boolean isCacheableAsset(String url) {
+        String host = hostOf(url);
+        if (host == null || !cacheHosts.contains(host)) {
+            return false;
+        }
+        String path = pathOf(url);
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && dot > path.lastIndexOf('/') && cacheExtensions.contains(path.substring(dot + 1));
+    }
+
+    private void handleThirdParty(Route route) {
+        Request req = route.request();
+        try {
+            String type = req.resourceType();
+
+            // dokumen (termasuk navigasi yang berujung download) & non-GET selalu diteruskan apa adanya
+            if (DOCUMENT.equals(type) || !"GET".equals(req.method())) {
+                route.resume();
+                return;
+            }
+
+            if (blockTypes.contains(type) || containsAny(req.url().toLowerCase(Locale.ROOT), blockUrls)) {
+                count("blocked", type);
+                route.abort("blockedbyclient");
+                return;
+            }
+
+            route.resume();
+        } catch (Exception e) {
+            log.debug("browserRoute >>> {} gagal di-handle: {}", req.url(), e.getMessage());
+            resumeQuietly(route);
+        }
+    }
+
+    private void handleAsset(Route route) {
+        Request req = route.request();
+        try {
+            String type = req.resourceType();
+            if (!"GET".equals(req.method()) || !cacheTypes.contains(type)) {
+                route.resume();
+                return;
+            }
+            serveCached(route, req, type);
+        } catch (Exception e) {
+            log.debug("browserRoute >>> {} gagal di-handle: {}", req.url(), e.getMessage());
+            resumeQuietly(route);
+        }
+    }
+
+    // tidak ada TTL buta: setiap pemakaian cache direvalidasi ke server dengan If-None-Match / If-Modified-Since,
+    // body hanya dilayani dari disk kalau server menjawab 304
+    private void serveCached(Route route, Request req, String type) throws Exception {
+        String key = hash(req.url());
+        Path body = cacheDir.resolve(key + ".bin");
+        Path meta = cacheDir.resolve(key + ".meta");
+
+        Properties cached = readMeta(body, meta);
+        Map<String, String> headers = new HashMap<>(req.headers());
+        if (cached != null) {
+            if (cached.getProperty(ETAG) != null) {
+                headers.put("if-none-match", cached.getProperty(ETAG));
+            }
+            if (cached.getProperty(LAST_MODIFIED) != null) {
+                headers.put("if-modified-since", cached.getProperty(LAST_MODIFIED));
+            }
+        }
+
+        APIResponse resp = route.fetch(new Route.FetchOptions().setHeaders(headers));
+        if (cached != null && resp.status() == 304) {
+            byte[] bytes = Files.readAllBytes(body);
+            // validator baru dari 304 (kalau ada) ikut disimpan
+            if (resp.headers().containsKey(ETAG) || resp.headers().containsKey(LAST_MODIFIED)) {
+                writeMeta(meta, cached.getProperty(CONTENT_TYPE), resp.headers());
+            }
+            count("revalidated", type);
+            meterRegistry.counter(METRIC_BYTES, "type", type).increment(bytes.length);
+            route.fulfill(new Route.FulfillOptions()
+                    .setStatus(200)
+                    .setContentType(cached.getProperty(CONTENT_TYPE))
+                    .setBodyBytes(bytes));
+            return;
+        }
+
+        // tanpa ETag / Last-Modified asset tidak bisa direvalidasi, jadi tidak disimpan
+        if (resp.status() == 200 && (resp.headers().containsKey(ETAG) || resp.headers().containsKey(LAST_MODIFIED))) {
+            String contentType = resp.headers().getOrDefault(CONTENT_TYPE, "application/octet-stream");
+            store(body, meta, resp.body(), contentType, resp.headers());
+        }
+        count("miss", type);
+        route.fulfill(new Route.FulfillOptions().setResponse(resp));
+    }
+
+    private Properties readMeta(Path body, Path meta) {
+        if (!Files.exists(body) || !Files.exists(meta)) {
+            return null;
+        }
+        try (Reader r = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            Properties p = new Properties();
+            p.load(r);
+            if (p.getProperty(CONTENT_TYPE) == null || (p.getProperty(ETAG) == null && p.getProperty(LAST_MODIFIED) == null)) {
+                return null;
+            }
+            return p;
+        } catch (Exception e) {
+            log.debug("browserRoute >>> meta cache {} tidak terbaca: {}", meta.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeMeta(Path meta, String contentType, Map<String, String> headers) throws Exception {
+        Properties p = new Properties();
+        p.setProperty(CONTENT_TYPE, contentType);
+        if (headers.get(ETAG) != null) {
+            p.setProperty(ETAG, headers.get(ETAG));
+        }
+        if (headers.get(LAST_MODIFIED) != null) {
+            p.setProperty(LAST_MODIFIED, headers.get(LAST_MODIFIED));
+        }
+        Path tmpMeta = Files.createTempFile(cacheDir, "asset", ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmpMeta, StandardCharsets.UTF_8)) {
+            p.store(w, null);
+        }
+        Files.move(tmpMeta, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // tulis ke file sementara lalu move, supaya session lain tidak membaca file setengah jadi
+    private void store(Path body, Path meta, byte[] bytes, String contentType, Map<String, String> headers) {
+        try {
+            Path tmpBody = Files.createTempFile(cacheDir, "asset", ".tmp");
+            Files.write(tmpBody, bytes);
+            Files.move(tmpBody, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeMeta(meta, contentType, headers);
+        } catch (Exception e) {
+            log.warn("browserRoute >>> gagal simpan cache {}: {}", body.getFileName(), e.getMessage());
+        }
+    }
+
+    private boolean isSlikHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        for (String h : slikHosts) {
+            if (host.equals(h) || host.endsWith("." + h)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? null : host.toLowerCase(Locale.ROOT);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String pathOf(String url) {
+        try {
+            String path = URI.create(url).getPath();
+            return path == null ? "" : path.toLowerCase(Locale.ROOT);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private void count(String outcome, String type) {
+        meterRegistry.counter(METRIC, "outcome", outcome, "type", type).increment();
+    }
+
+    private void resumeQuietly(Route route) {
+        try {
+            route.resume();
+        } catch (Exception e) {
+            log.debug("browserRoute >>> resume gagal: {}", e.getMessage());
+        }
+    }
+
+    private static boolean containsAny(String url, Set<String> parts) {
+        for (String p : parts) {
+            if (url.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hash(String url) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(md.digest(url.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Set<String> toSet(String csv) {
+        if (csv == null || csv.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(csv.split(","))
+                .map(s -> s.trim().toLowerCase(Locale.ROOT))
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,76 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class CaptchaArchiveService {
+
+    @Value("${cbas.ml.folder}")
+    private String archiveFolder;
+
+    // 0 = tidak disimpan, 1 = semua captcha disimpan untuk data training
+    @Value("${cbas.ml.archive.sample-rate:0}")
+    private Double sampleRate;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100),
+                r -> {
+                    Thread t = new Thread(r, "captcha-archive");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public void archive(byte[] image, String prefix, String result) {
+        if (image == null || sampleRate == null || sampleRate <= 0d) {
+            return;
+        }
+
+        if (sampleRate < 1d && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> write(image, prefix, result));
+        } catch (RejectedExecutionException e) {
+            log.debug("captchaArchive >>> antrian penuh, skip");
+        }
+    }
+
+    private void write(byte[] image, String prefix, String result) {
+        try {
+            Path folder = Path.of(archiveFolder);
+            Files.createDirectories(folder);
+
+            String label = result == null ? "unk" : result.replaceAll("[^A-Za-z0-9]", "_");
+            Path filePath = folder.resolve(prefix + "-" + System.currentTimeMillis() + "-" + label + ".jpg");
+            Files.write(filePath, image);
+            log.debug("captchaArchive >>> captcha disimpan di {}", filePath.toAbsolutePath());
+        } catch (Exception e) {
+            log.warn("captchaArchive >>> gagal simpan captcha: {}", e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.ilkeiapps.slik.slikengine.service;
 
+import com.ilkeiapps.slik.slikengine.bean.CaptchaSolveResult;
+import com.ilkeiapps.slik.slikengine.bean.OcrResult;
 import com.ilkeiapps.slik.slikengine.retrofit.IOCR;
 import com.microsoft.playwright.Frame;
 import com.microsoft.playwright.Page;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.MediaType;
@@ -10,14 +13,11 @@ import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import retrofit2.Call;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.*;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -26,102 +26,73 @@ public class CaptchaService {
 
     private final IOCR iocr;
 
-    @Value("${cbas.ml.folder}")
-    private String screenShootFolder;
+    private final CaptchaArchiveService captchaArchiveService;
 
-    public String fetchCapchaTensorPlaywright(Page page) {
-        String script = """
-                () => {
-                    var img = document.getElementById('captcha-img');
-                    if (!img) {
-                        return null;
-                    }
-                
-                    var canvas = document.createElement('canvas');
-                    var ctx = canvas.getContext('2d');
-                
-                    function getMaxSize(srcWidth, srcHeight, maxWidth, maxHeight) {
-                        var widthScale = null;
-                        var heightScale = null;
-                
-                        if (maxWidth != null) {
-                            widthScale = maxWidth / srcWidth;
-                        }
-                        if (maxHeight != null) {
-                            heightScale = maxHeight / srcHeight;
-                        }
-                
-                        var ratio = Math.min(widthScale || heightScale, heightScale || widthScale);
-                        return {
-                            width: Math.round(srcWidth * ratio),
-                            height: Math.round(srcHeight * ratio)
-                        };
-                    }
-                
-                    var size = getMaxSize(img.width, img.height, 600, 600);
-                    canvas.width = size.width;
-                    canvas.height = size.height;
-                    ctx.fillStyle = 'black';
-                    ctx.fillRect(0, 0, size.width, size.height);
-                    ctx.drawImage(img, 0, 0, size.width, size.height);
-                
-                    return canvas.toDataURL('image/jpeg', 0.9);
-                }
-                """;
+    private final LocalCaptchaSolverService localCaptchaSolverService;
 
-        try {
-            String tys = (String) page.evaluate(script);
+    private final MeterRegistry meterRegistry;
 
-            if (tys == null) {
-                log.error("fetchCapchaTensorPlaywright >>> evaluate return null (captcha-img tidak ditemukan?)");
-                return null;
-            }
+    @Value("${cbas.captcha.local.min-confidence:0.85}")
+    private Double localMinConfidence;
 
-            if (tys.isBlank()) {
-                log.error("fetchCapchaTensorPlaywright >>> dataURL kosong");
-                return null;
-            }
-
-            // format: "data:image/jpeg;base64,xxxxx"
-            int commaIdx = tys.indexOf(',');
-            if (commaIdx < 0 || commaIdx == tys.length() - 1) {
-                log.error("fetchCapchaTensorPlaywright >>> dataURL tidak berisi payload base64: {}", tys);
-                return null;
-            }
+    private static final MediaType IMAGE_JPEG = MediaType.parse("image/jpeg");
 
-            String base64 = tys.substring(commaIdx + 1);
-            byte[] by = Base64.getDecoder().decode(base64);
-
-            BufferedImage xim;
-            try (ByteArrayInputStream bis = new ByteArrayInputStream(by)) {
-                xim = ImageIO.read(bis);
+    // canvas tetap di-export JPEG 0.9 seperti sebelumnya supaya input OCR sama; byte-nya dikirim apa adanya
+    // tanpa decode/encode ulang & tulis file di sini
+    private static final String CAPTCHA_SCRIPT = """
+            (background) => {
+                var img = document.getElementById('captcha-img');
+                if (!img) {
+                    return null;
+                }
+            
+                var canvas = document.createElement('canvas');
+                var ctx = canvas.getContext('2d');
+            
+                function getMaxSize(srcWidth, srcHeight, maxWidth, maxHeight) {
+                    var widthScale = null;
+                    var heightScale = null;
+            
+                    if (maxWidth != null) {
+                        widthScale = maxWidth / srcWidth;
+                    }
+                    if (maxHeight != null) {
+                        heightScale = maxHeight / srcHeight;
+                    }
+            
+                    var ratio = Math.min(widthScale || heightScale, heightScale || widthScale);
+                    return {
+                        width: Math.round(srcWidth * ratio),
+                        height: Math.round(srcHeight * ratio)
+                    };
+                }
+            
+                var size = getMaxSize(img.width, img.height, 600, 600);
+                canvas.width = size.width;
+                canvas.height = size.height;
+                ctx.fillStyle = background;
+                ctx.fillRect(0, 0, size.width, size.height);
+                ctx.drawImage(img, 0, 0, size.width, size.height);
+            
+                return canvas.toDataURL('image/jpeg', 0.9);
             }
+            """;
 
-            if (xim == null) {
-                log.error("fetchCapchaTensorPlaywright >>> ImageIO.read mengembalikan null (byte bukan image valid)");
+    public String fetchCapchaTensorPlaywright(Page page) {
+        try {
+            byte[] jpeg = decodeDataUrl((String) page.evaluate(CAPTCHA_SCRIPT, "black"), "fetchCapchaTensorPlaywright");
+            if (jpeg == null) {
                 return null;
             }
 
-            long now = System.currentTimeMillis();
-
-            Path folder = Path.of(screenShootFolder);
-            Files.createDirectories(folder);
-
-            Path filePath = folder.resolve("captcha-" + now + ".png");
-            File fl = filePath.toFile();
-
-            ImageIO.write(xim, "png", fl);
-            log.info("fetchCapchaTensorPlaywright >>> captcha disimpan di {}", filePath.toAbsolutePath());
-
-            RequestBody body = RequestBody.create(fl, MediaType.parse("image/png"));
-            MultipartBody.Part rb = MultipartBody.Part.createFormData("file", "image", body);
-
-            var call = iocr.fetchCaptcha(rb);
-            var res = call.execute();
-            var bd = res.body();
-            if (bd != null && Boolean.TRUE.equals(bd.getStatus())) {
-                return bd.getResult();
+            CaptchaSolveResult local = solveLocal(jpeg, "fetchCapchaTensorPlaywright");
+            String result = accepted(local) ? local.getText() : null;
+            if (result == null) {
+                result = callOcr(jpeg, iocr::fetchCaptcha);
+                compareShadow(local, result, "fetchCapchaTensorPlaywright");
             }
+            captchaArchiveService.archive(jpeg, "captcha", result);
+            return result;
         } catch (Exception e) {
             log.error("fetchCapchaTensorPlaywright >>> error", e);
         }
@@ -130,106 +101,94 @@ public class CaptchaService {
     }
 
     public String fetchCapcha2TensorPlaywright(Frame frame) {
-        String script = """
-                () => {
-                    var img = document.getElementById('captcha-img');
-                    if (!img) {
-                        return null;
-                    }
-                
-                    var canvas = document.createElement('canvas');
-                    var ctx = canvas.getContext('2d');
-                
-                    function getMaxSize(srcWidth, srcHeight, maxWidth, maxHeight) {
-                        var widthScale = null;
-                        var heightScale = null;
-                
-                        if (maxWidth != null) {
-                            widthScale = maxWidth / srcWidth;
-                        }
-                        if (maxHeight != null) {
-                            heightScale = maxHeight / srcHeight;
-                        }
-                
-                        var ratio = Math.min(widthScale || heightScale, heightScale || widthScale);
-                        return {
-                            width: Math.round(srcWidth * ratio),
-                            height: Math.round(srcHeight * ratio)
-                        };
-                    }
-                
-                    var size = getMaxSize(img.width, img.height, 600, 600);
-                    canvas.width = size.width;
-                    canvas.height = size.height;
-                    ctx.fillStyle = 'white';
-                    ctx.fillRect(0, 0, size.width, size.height);
-                    ctx.drawImage(img, 0, 0, size.width, size.height);
-                
-                    return canvas.toDataURL('image/jpeg', 0.9);
-                }
-                """;
-
         try {
-            String tys = (String) frame.evaluate(script);
-
-            if (tys == null) {
-                log.error("fetchCapcha2TensorPlaywright >>> evaluate return null (captcha-img tidak ditemukan?)");
+            byte[] jpeg = decodeDataUrl((String) frame.evaluate(CAPTCHA_SCRIPT, "white"), "fetchCapcha2TensorPlaywright");
+            if (jpeg == null) {
                 return null;
             }
 
-            if (tys.isBlank()) {
-                log.error("fetchCapcha2TensorPlaywright >>> dataURL kosong");
-                return null;
+            CaptchaSolveResult local = solveLocal(jpeg, "fetchCapcha2TensorPlaywright");
+            String resx = accepted(local) ? local.getText() : null;
+            if (resx == null) {
+                resx = callOcr(jpeg, iocr::fetchCaptchaWhite);
+                compareShadow(local, resx, "fetchCapcha2TensorPlaywright");
             }
-
-            String[] tyss = tys.split(",");
-            if (tyss.length == 0) {
-                log.error("fetchCapcha2TensorPlaywright >>> hasil split dataURL kosong: {}", tys);
+            captchaArchiveService.archive(jpeg, "captcha2", resx);
+            if (resx != null && resx.contains("[UNK]")) {
                 return null;
             }
+            return resx;
+        } catch (Exception e) {
+            log.error("fetchCapcha2TensorPlaywright >>> error", e);
+        }
 
-            byte[] by = Base64.getDecoder().decode(tyss[tyss.length - 1]);
+        return null;
+    }
 
-            BufferedImage xim;
-            try (ByteArrayInputStream bis = new ByteArrayInputStream(by)) {
-                xim = ImageIO.read(bis);
-            }
+    // hasil solver lokal (enabled atau shadow), null kalau solver tidak aktif / gagal
+    private CaptchaSolveResult solveLocal(byte[] jpeg, String caller) {
+        if (!localCaptchaSolverService.isActive()) {
+            return null;
+        }
 
-            if (xim == null) {
-                log.error("fetchCapcha2TensorPlaywright >>> ImageIO.read mengembalikan null (byte bukan image valid)");
-                return null;
-            }
+        long start = System.currentTimeMillis();
+        CaptchaSolveResult local = localCaptchaSolverService.solve(jpeg);
+        if (local == null || local.getText() == null) {
+            return null;
+        }
 
-            long now = System.currentTimeMillis();
+        log.info("{} >>> local solver: {} conf={} ({} ms)", caller, local.getText(), local.getConfidence(),
+                System.currentTimeMillis() - start);
+        return local;
+    }
 
-            Path folder = Path.of(screenShootFolder);
-            Files.createDirectories(folder);
+    // jawaban lokal hanya dipakai kalau solver di-enable (bukan shadow) dan yakin
+    private boolean accepted(CaptchaSolveResult local) {
+        return local != null && localCaptchaSolverService.isEnabled() && local.getConfidence() >= localMinConfidence;
+    }
 
-            Path filePath = folder.resolve("captcha2-" + now + ".png");
-            File fl = filePath.toFile();
+    // data kalibrasi: seberapa sering jawaban lokal sama dengan OCR remote per sisi threshold
+    private void compareShadow(CaptchaSolveResult local, String remote, String caller) {
+        if (local == null || remote == null) {
+            return;
+        }
 
-            ImageIO.write(xim, "png", fl);
-            log.info("fetchCapcha2TensorPlaywright >>> captcha disimpan di {}", filePath.toAbsolutePath());
+        boolean agree = local.getText().equalsIgnoreCase(remote.trim());
+        boolean confident = local.getConfidence() >= localMinConfidence;
+        log.info("{} >>> shadow local={} conf={} remote={} agree={}", caller, local.getText(), local.getConfidence(), remote, agree);
+        meterRegistry.counter("slik.captcha.local", "agree", String.valueOf(agree), "confident", String.valueOf(confident)).increment();
+    }
 
-            RequestBody body = RequestBody.create(fl, MediaType.parse("image/png"));
-            MultipartBody.Part rb = MultipartBody.Part.createFormData("file", "image", body);
+    private byte[] decodeDataUrl(String tys, String caller) {
+        if (tys == null) {
+            log.error("{} >>> evaluate return null (captcha-img tidak ditemukan?)", caller);
+            return null;
+        }
 
-            var call = iocr.fetchCaptchaWhite(rb);
-            var res = call.execute();
-            var bd = res.body();
-            if (bd != null && Boolean.TRUE.equals(bd.getStatus())) {
-                String resx = bd.getResult();
-                if (resx != null && resx.contains("[UNK]")) {
-                    return null;
-                }
-                return bd.getResult();
-            }
+        if (tys.isBlank()) {
+            log.error("{} >>> dataURL kosong", caller);
+            return null;
+        }
 
-        } catch (Exception e) {
-            log.error("fetchCapcha2TensorPlaywright >>> error", e);
+        // format: "data:image/jpeg;base64,xxxxx"
+        int commaIdx = tys.indexOf(',');
+        if (commaIdx < 0 || commaIdx == tys.length() - 1) {
+            log.error("{} >>> dataURL tidak berisi payload base64", caller);
+            return null;
         }
 
-        return null;
+        return Base64.getDecoder().decode(tys.substring(commaIdx + 1));
     }
 
+    private String callOcr(byte[] jpeg, Function<MultipartBody.Part, Call<OcrResult>> endpoint) throws IOException {
+        RequestBody body = RequestBody.create(jpeg, IMAGE_JPEG);
+        MultipartBody.Part rb = MultipartBody.Part.createFormData("file", "image", body);
+
+        var res = endpoint.apply(rb).execute();
+        var bd = res.body();
+        if (bd != null && Boolean.TRUE.equals(bd.getStatus())) {
+            return bd.getResult();
+        }
+        return null;
+    }
 }
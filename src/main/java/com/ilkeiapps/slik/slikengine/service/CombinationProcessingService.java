@@ -1,27 +1,22 @@
 package com.ilkeiapps.slik.slikengine.service;
 
 import com.ilkeiapps.slik.slikengine.bean.*;
-import com.ilkeiapps.slik.slikengine.bean.scoring.GetScoring;
-import com.ilkeiapps.slik.slikengine.bean.scoring.ScoringItem;
-import com.ilkeiapps.slik.slikengine.config.ScoringConfig;
+import com.ilkeiapps.slik.slikengine.bean.scoring.ScoringRules;
 import com.ilkeiapps.slik.slikengine.retrofit.IM2M;
-import com.ilkeiapps.slik.slikengine.retrofit.ISCORING;
-import com.ilkeiapps.slik.slikengine.utility.SimilarityUtil;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.AriaRole;
 import com.microsoft.playwright.options.SelectOption;
 import com.microsoft.playwright.options.WaitForSelectorState;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
-import retrofit2.Call;
-import retrofit2.Response;
 
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -36,15 +31,13 @@ public class CombinationProcessingService {
     private final CaptchaService captchaService;
     private final CommonProcessingService commonProcessingService;
     private final IM2M m2mService;
+    private final M2mAsyncService m2mAsyncService;
     private final EngineService engineService;
     private final ActivityServices activityService;
     private final DownloadProcessingService downloadProcessingService;
-    private final ISCORING scoringApi;
-
-    private ScoringConfig scoringConfig;
-    private volatile long scoringConfigLoadedAt;
-    private final Object scoringLock = new Object();
-    private static final long SCORING_TTL_MILLIS = 5 * 60 * 1000L;
+    private final ScoringRuleService scoringRuleService;
+    private final SimilarityScoringService similarityScoringService;
+    private final PageWaitService pageWaitService;
 
     private static final String MK_LOG_PREFIX = "manual Kombinasi >>> ";
     private static final String MK_SEGMENT_CAPTCHA = "Pengisian Captcha dan Submit";
@@ -90,6 +83,10 @@ public class CombinationProcessingService {
     @Value("${cbas.engine.name}")
     private String robotName;
 
+    // potongan url XHR pencarian SLIK, kosong = cukup tunggu blocker hilang
+    @Value("${cbas.wait.xhr.combination-search:}")
+    private String searchXhr;
+
     public void manualKombinasi(AppRequestPayload src) {
         log.info("{} starting", MK_LOG_PREFIX);
 
@@ -230,7 +227,7 @@ public class CombinationProcessingService {
             Locator captchaBox = frame.locator("#captcha");
             captchaBox.fill(currentCaptcha);
 
-            safeSleep(3_000L, MK_LOG_PREFIX + req.getNoRefCounter() + " sebelum klik search");
+            pageWaitService.waitBlockLayerGone(frame, "combination.before-search");
 
             try {
                 clickSearchButton(req, driver, frame);
@@ -284,8 +281,13 @@ public class CombinationProcessingService {
     private void clickSearchButton(AppRequest req, Page driver, Frame frame) {
         log.info("processing >>> {} to click search button", req.getNoRefCounter());
         Locator scr = frame.locator("#search-button");
-        scr.click(new Locator.ClickOptions().setTimeout(2000));
+        if (StringUtils.isNotBlank(searchXhr)) {
+            pageWaitService.waitForXhr(driver, "combination.search.xhr", searchXhr, () -> scr.click(new Locator.ClickOptions().setTimeout(2000)));
+        } else {
+            scr.click(new Locator.ClickOptions().setTimeout(2000));
+        }
         driver.waitForLoadState();
+        pageWaitService.waitBlockLayerGone(frame, "combination.search");
     }
 
     private boolean handleDuplicateOrNotMatchDialogs(Frame frame) {
@@ -305,8 +307,7 @@ public class CombinationProcessingService {
     }
 
     private boolean isScreenshotCleanAfterSearch(AppRequest req) {
-        byte[] sc = commonProcessingService.screenshot();
-        String stat = commonProcessingService.checkScreenshot(sc);
+        String stat = commonProcessingService.detectScreen();
         log.info("manualKombinasi >>> {} screenshot status setelah search: {}", req.getNoRefCounter(), stat);
 
         if (!"NONE".equals(stat)) {
@@ -359,13 +360,8 @@ public class CombinationProcessingService {
             Locator exportButton = reportFrame.locator("button#export");
             exportButton.waitFor(new Locator.WaitForOptions().setTimeout(30_000));
 
-            long start = System.currentTimeMillis();
             long maxWaitMillis = 60_000L;
-
-            while (!exportButton.isEnabled() && (System.currentTimeMillis() - start) < maxWaitMillis) {
-                log.info("{} {} tombol export masih disabled, tunggu 1 detik...", MK_LOG_PREFIX, req.getNoRefCounter());
-                safeSleep(1_000L, MK_LOG_PREFIX + req.getNoRefCounter() + " menunggu export enable");
-            }
+            pageWaitService.waitForEnabled(reportFrame, "button#export", "combination.export-enabled", maxWaitMillis);
 
             if (!exportButton.isEnabled()) {
                 log.error("{} {} tombol export tetap disabled setelah {} ms, fallback ke proses lama", MK_LOG_PREFIX, req.getNoRefCounter(), maxWaitMillis);
@@ -403,16 +399,20 @@ public class CombinationProcessingService {
     }
 
     private Frame waitForReportViewerFrame(Page driver, String noRefCounter) {
-        for (int i = 0; i < 30; i++) {
-            List<Frame> frames = driver.frames();
-            log.info("{} {} cek frame viewer attempt={} totalFrame={}", MK_LOG_PREFIX, noRefCounter, i + 1, frames.size());
-
-            for (Frame f : frames) {
+        Frame[] found = new Frame[1];
+        pageWaitService.poll(driver, "combination.report-viewer", 30_000L, () -> {
+            for (Frame f : driver.frames()) {
                 Frame candidate = findReportViewerFrameCandidate(f, noRefCounter);
-                if (candidate != null) return candidate;
+                if (candidate != null) {
+                    found[0] = candidate;
+                    return true;
+                }
             }
+            return false;
+        });
 
-            safeSleep(1_000L, MK_LOG_PREFIX + noRefCounter + " menunggu frame ReportViewer");
+        if (found[0] != null) {
+            return found[0];
         }
 
         log.error("{} {} frame ReportViewer tidak ditemukan", MK_LOG_PREFIX, noRefCounter);
@@ -464,13 +464,9 @@ public class CombinationProcessingService {
     }
 
     private void updateFailStatus(AppRequest req, ProcessReportRequest pp, SubmitRequest sr) {
-        try {
-            log.info("{} {} set status to fail request with payload: {}", MK_LOG_PREFIX, req.getNoRefCounter(), pp);
-            m2mService.processFail(pp).execute();
-            m2mService.processCallback(sr).execute();
-        } catch (IOException e) {
-            log.error("processing >>> {} error set status to fail request with payload: {}", req.getNoRefCounter(), pp, e);
-        }
+        log.info("{} {} set status to fail request with payload: {}", MK_LOG_PREFIX, req.getNoRefCounter(), pp);
+        m2mAsyncService.send(req.getNoRefCounter(), "processFail", () -> m2mService.processFail(pp));
+        m2mAsyncService.send(req.getNoRefCounter(), "processCallback", () -> m2mService.processCallback(sr));
     }
 
     private void backToKombinasiForm(Page driver, AppRequest req) {
@@ -490,7 +486,7 @@ public class CombinationProcessingService {
         } catch (Exception e) {
             log.warn("{} {} gagal balik ke form, refresh sebagai fallback", MK_LOG_PREFIX, req.getNoRefCounter(), e);
             webDriverService.refresh();
-            safeSleep(5_000L, "after refresh");
+            pageWaitService.waitSettled(driver, webDriverService.getFrame("main"), "combination.refresh");
         }
     }
 
@@ -556,7 +552,7 @@ public class CombinationProcessingService {
                 btn.waitFor(new Locator.WaitForOptions().setState(WaitForSelectorState.VISIBLE).setTimeout(600));
 
                 btn.click(new Locator.ClickOptions().setTimeout(2000));
-                frame.waitForTimeout(200);
+                pageWaitService.waitForState(btn, WaitForSelectorState.HIDDEN, "combination.popup-ok");
                 log.info("{} {} clickOkPopupIfAny >>> clicked selector={}", MK_LOG_PREFIX, app.getNoRefCounter(), sel);
                 return;
             }
@@ -610,8 +606,7 @@ public class CombinationProcessingService {
     }
 
     private boolean isScreenshotStatusNoneAfterGenerate(AppRequest req) {
-        byte[] sc2 = commonProcessingService.screenshot();
-        String stat2 = commonProcessingService.checkScreenshot(sc2);
+        String stat2 = commonProcessingService.detectScreen();
         log.info("manualKombinasi >>> {} screenshot status after generate: {}", req.getNoRefCounter(), stat2);
         return "NONE".equals(stat2);
     }
@@ -640,22 +635,19 @@ public class CombinationProcessingService {
         }
     }
 
-    private void updateStatusDoneAndCallback(AppRequest req, ProcessReportRequest pp, SubmitRequest sr) throws IOException {
-        log.info("processing >>> {} set status done with payload: {}", req.getNoRefCounter(), pp);
-        m2mService.processDone(pp).execute();
-
-        log.info("processing >>> {} send callback with payload: {}", req.getNoRefCounter(), sr);
-        m2mService.processCallback(sr).execute();
+    private void updateStatusDoneAndCallback(AppRequest req, ProcessReportRequest pp, SubmitRequest sr) {
+        // dikirim async, digabung ke processDoneBulk / processCallbackBulk
+        log.info("processing >>> {} set status done & callback with payload: {} {}", req.getNoRefCounter(), pp, sr);
+        m2mAsyncService.doneAndCallback(req.getNoRefCounter(), pp, sr);
     }
 
     private void handleWrongActionAfterGenerate(AppRequest req) {
         log.info("ProcessSlikManualKombinasi >>> processing {} wrong action", req.getNoRefCounter());
         webDriverService.refresh();
 
-        safeSleep(5_000L, "processLogin >>> sleep setelah refresh");
+        pageWaitService.waitSettled(webDriverService.getDriver(), webDriverService.getFrame("main"), "combination.wrong-action");
 
-        byte[] ss = this.commonProcessingService.screenshot();
-        String stat2 = commonProcessingService.checkScreenshot(ss);
+        String stat2 = commonProcessingService.detectScreen();
         if (!"NONE".equals(stat2)) {
             engineService.setCurrentStatusEngine(ENGINE_STATUS_CRASH);
         }
@@ -1074,43 +1066,102 @@ public class CombinationProcessingService {
         }
     }
 
-    private static final String MK_SEL_RCB_BLOCK_LAYER = "#rcbBlockLayer_slik-ui";
+    // satu kali evaluate untuk semua baris #listview1: sel data, alamat dan id checkbox
+    private static final String MK_JS_LISTVIEW_SNAPSHOT = """
+            () => Array.from(document.querySelectorAll('#listview1 > div > div')).map((el, i) => {
+              const tbls = el.querySelectorAll('table');
+              const cb = el.querySelector("input[type='checkbox']");
+              let hasTbody = false;
+              let cells = [];
+              if (tbls.length > 0) {
+                const tbody = tbls[0].querySelector('tbody');
+                hasTbody = !!tbody;
+                const tr = tbody ? tbody.querySelector('tr') : null;
+                cells = tr ? Array.from(tr.querySelectorAll('td')).map(td => td.textContent || '') : [];
+              }
+              let address = '';
+              if (tbls.length > 1) {
+                const tr = tbls[1].querySelector('tr');
+                const td = tr ? tr.querySelector('td') : null;
+                address = td ? (td.textContent || '') : '';
+              }
+              return { index: i, tableCount: tbls.length, hasTbody, cells, address,
+                       checkboxId: cb && cb.id ? cb.id : null, hasCheckbox: !!cb };
+            })
+            """;
 
     private void readTableOnce(Frame frame, AppRequest app) {
         waitListViewReady(frame, app);
 
-        Locator rowDiv = frame.locator("#listview1 > div > div");
-        int rows = safeCount(rowDiv, frame, app, "count rows");
-        if (rows <= 0) {
+        List<CombinationRow> rows = snapshotRows(frame, app);
+        if (rows.isEmpty()) {
             return;
         }
 
-        boolean selected = false;
+        List<CombinationRow> candidates = rows.stream()
+                .filter(r -> r.getTableCount() > 1 && r.isHasCheckbox())
+                .toList();
+        if (candidates.isEmpty()) {
+            return;
+        }
 
-        for (int x = 0; x < rows && !selected; x++) {
-            Locator el = rowDiv.nth(x);
+        ScoringRules rules = scoringRuleService.getRules();
+        if (rules == null) {
+            log.error("{} {} readTableOnce >>> scoring rules belum tersedia (gagal load dari BE), anggap tidak match", MK_LOG_PREFIX, app.getNoRefCounter());
+            return;
+        }
 
-            Locator tbls = el.locator("table");
-            int tcount = safeCount(tbls, frame, app, "count tables row " + x);
+        int matched = -1;
+        try {
+            matched = similarityScoringService.findMatch(candidates, app, rules);
+        } catch (Exception e) {
+            log.warn("{} {} readTableOnce >>> scoring error: {}", MK_LOG_PREFIX, app.getNoRefCounter(), e.getMessage());
+        }
+        if (matched < 0) {
+            return;
+        }
 
-            Locator cb = el.locator("input[type='checkbox']").first();
-            int cbCount = safeCount(cb, frame, app, "count checkbox row " + x);
+        CombinationRow row = candidates.get(matched);
+        Locator cb = row.getCheckboxId() != null
+                ? frame.locator("[id='" + row.getCheckboxId().replace("'", "\\'") + "']")
+                : frame.locator("#listview1 > div > div").nth(row.getIndex()).locator("input[type='checkbox']").first();
+        clickCheckboxSafe(frame, cb, app, "row " + row.getIndex());
+        pageWaitService.waitBlockLayerGone(frame, "combination.checkbox");
+    }
 
-            boolean matched = false;
-            if (tcount > 1 && cbCount > 0) {
-                try {
-                    matched = this.doJaro(tbls.nth(0), tbls.nth(1), app);
-                } catch (Exception e) {
-                    log.warn("{} {} readTableOnce >>> doJaro error row {}: {}", MK_LOG_PREFIX, app.getNoRefCounter(), x, e.getMessage());
-                }
+    private List<CombinationRow> snapshotRows(Frame frame, AppRequest app) {
+        Object raw;
+        try {
+            raw = frame.evaluate(MK_JS_LISTVIEW_SNAPSHOT);
+        } catch (Exception e) {
+            log.warn("{} {} snapshotRows >>> gagal baca listview: {}", MK_LOG_PREFIX, app.getNoRefCounter(), e.getMessage());
+            return List.of();
+        }
+        if (!(raw instanceof List<?> list)) {
+            return List.of();
+        }
+
+        List<CombinationRow> rows = new ArrayList<>(list.size());
+        for (Object o : list) {
+            if (!(o instanceof Map<?, ?> m)) {
+                continue;
             }
 
-            if (tcount > 1 && cbCount > 0 && matched) {
-                clickCheckboxSafe(frame, cb, app, "row " + x);
-                frame.waitForTimeout(150);
-                selected = true;
+            var row = new CombinationRow();
+            row.setIndex(m.get("index") instanceof Number n ? n.intValue() : rows.size());
+            row.setTableCount(m.get("tableCount") instanceof Number n ? n.intValue() : 0);
+            row.setHasTbody(Boolean.TRUE.equals(m.get("hasTbody")));
+            row.setHasCheckbox(Boolean.TRUE.equals(m.get("hasCheckbox")));
+            row.setCheckboxId(m.get("checkboxId") instanceof String id ? id : null);
+            row.setAddress(safeText(m.get("address") instanceof String ad ? ad : null));
+            if (m.get("cells") instanceof List<?> cells) {
+                for (Object c : cells) {
+                    row.getCells().add(safeText(c == null ? null : c.toString()));
+                }
             }
+            rows.add(row);
         }
+        return rows;
     }
 
     private void clickCheckboxSafe(Frame frame, Locator cb, AppRequest app, String ctx) {
@@ -1138,7 +1189,7 @@ public class CombinationProcessingService {
         if (!clicked) {
             log.warn("{} {} checkbox {} masih ke-block, fallback JS-check", MK_LOG_PREFIX, app.getNoRefCounter(), ctx);
             jsCheck(cb);
-            frame.waitForTimeout(100);
+            pageWaitService.waitBlockLayerGone(frame, "combination.checkbox");
             return;
         }
 
@@ -1171,15 +1222,8 @@ public class CombinationProcessingService {
     }
 
     private void waitRcbBlockLayerGone(Frame frame, AppRequest app, String ctx) {
-        try {
-            frame.waitForSelector(MK_SEL_RCB_BLOCK_LAYER,
-                    new Frame.WaitForSelectorOptions()
-                            .setState(WaitForSelectorState.HIDDEN)
-                            .setTimeout(8_000));
-        } catch (TimeoutError te) {
-            log.warn("{} {} {} >>> blocker masih tampil: {}", MK_LOG_PREFIX, app.getNoRefCounter(), ctx, te.getMessage());
-        } catch (Exception e) {
-            log.debug("{} {} {} >>> ignore wait blocker: {}", MK_LOG_PREFIX, app.getNoRefCounter(), ctx, e.getMessage());
+        if (!pageWaitService.waitBlockLayerGone(frame, "combination.checkbox.blocker", 8_000L)) {
+            log.warn("{} {} {} >>> blocker masih tampil", MK_LOG_PREFIX, app.getNoRefCounter(), ctx);
         }
     }
 
@@ -1188,159 +1232,6 @@ public class CombinationProcessingService {
         return m != null && (m.contains("rcbBlockLayer_slik-ui") || m.contains("intercepts pointer events"));
     }
 
-    private boolean doJaro(Locator tblData, Locator tblAlamat, AppRequest app) {
-        if (app.getAppRequestCustType().equals("IND")) {
-            return this.doJaroIndividual(tblData, tblAlamat, app);
-        } else {
-            return this.doJaroCompany(tblData, tblAlamat, app);
-        }
-    }
-
-    private boolean doJaroIndividual(Locator tblData, Locator tblAlamat, AppRequest app) {
-        String nik = "";
-        String nama = "";
-        String mother = "";
-        String pob = "";
-        String dob = "";
-        String addr = "";
-
-        // ===== 1. Baca data dari tabel hasil SLIK =====
-        try {
-            var tbody = tblData.locator("tbody");
-            if (tbody.count() == 0) return false;
-
-            var trData = tbody.locator("tr");
-            if (trData.count() > 0) {
-                var trd = trData.first();
-                var tds = trd.locator("td");
-                if (tds.count() > 7) {
-                    nik = safeText(tds.nth(1).textContent());
-                    nama = safeText(tds.nth(2).textContent());
-                    mother = safeText(tds.nth(3).textContent());
-                    pob = safeText(tds.nth(5).textContent());
-                    dob = safeText(tds.nth(6).textContent());
-                }
-            }
-        } catch (Exception e) {
-            log.error("doJaroIndividual >>> error reading data table", e);
-            return false;
-        }
-
-        // alamat
-        try {
-            var trAddr = tblAlamat.locator("tr");
-            if (trAddr.count() > 0) {
-                var trd = trAddr.first();
-                var tds = trd.locator("td");
-                if (tds.count() > 0) {
-                    addr = safeText(tds.nth(0).textContent());
-                }
-            }
-        } catch (Exception e) {
-            log.error("doJaroIndividual >>> error reading address table", e);
-        }
-
-        // ===== 2. Ambil konfigurasi dari BE =====
-        ScoringConfig cfg = getScoringConfig();
-        if (cfg == null) {
-            log.error("doJaroIndividual >>> scoringConfig NULL (gagal load dari BE), anggap tidak match");
-            return false;
-        }
-
-        SimilarityUtil sim = new SimilarityUtil();
-        int scr = 0;
-
-        // DOB dari AppRequest ke string (format sama dengan SLIK)
-        String appDobStr = "";
-        if (app.getAppRequestDob() != null) {
-            var fmt = DateTimeFormatter.ofPattern(FORMAT_DATE);
-            appDobStr = app.getAppRequestDob().format(fmt);
-        }
-
-        // ===== 3. Hitung skor per field berdasarkan config BE =====
-        scr += computeScoreForField(cfg.getItem("NIK"), nik, app.getAppRequestKtp(), sim, true, "NIK");
-        scr += computeScoreForField(cfg.getItem("NAMA"), nama, app.getAppRequestCustName(), sim, false, "NAMA");
-        scr += computeScoreForField(cfg.getItem("MDN"), mother, app.getAppRequestMotherName(), sim, false, "MDN");
-        scr += computeScoreForField(cfg.getItem("DOB"), dob, appDobStr, sim, true, "DOB");
-        scr += computeScoreForField(cfg.getItem("POB"), pob, app.getAppRequestPob(), sim, false, "POB");
-        scr += computeScoreForField(cfg.getItem("ADDR"), addr, app.getAppRequestHomeAddress(), sim, false, "ADDR");
-
-        log.info("doJaroIndividual >>> app={} totalScore={} (minNeed={})", app.getNoRefCounter(), scr, cfg.getGlobalMinScore());
-
-        return scr >= cfg.getGlobalMinScore();
-    }
-
-    private boolean doJaroCompany(Locator tblData, Locator tblAlamat, AppRequest app) {
-        String npwp = "";
-        String nama = "";
-        String pob = "";
-        String dob = "";
-        String addr = "";
-
-        // ===== 1. Baca data dari tabel hasil SLIK =====
-        try {
-            var tbody = tblData.locator("tbody");
-            if (tbody.count() == 0) return false;
-
-            var trData = tbody.locator("tr");
-            if (trData.count() > 0) {
-                var trd = trData.first();
-                var tds = trd.locator("td");
-                if (tds.count() > 4) {
-                    npwp = safeText(tds.nth(1).textContent());
-                    nama = safeText(tds.nth(2).textContent());
-                    pob = safeText(tds.nth(3).textContent());
-                    dob = safeText(tds.nth(4).textContent());
-                }
-            }
-        } catch (Exception e) {
-            log.error("doJaroCompany >>> error reading data table", e);
-            return false;
-        }
-
-        // alamat
-        try {
-            var trAddr = tblAlamat.locator("tr");
-            if (trAddr.count() > 0) {
-                var trd = trAddr.first();
-                var tds = trd.locator("td");
-                if (tds.count() > 0) {
-                    addr = safeText(tds.nth(0).textContent());
-                }
-            }
-        } catch (Exception e) {
-            log.error("doJaroCompany >>> error reading address table", e);
-        }
-
-        // ===== 2. Ambil konfigurasi dari BE =====
-        ScoringConfig cfg = getScoringConfig();
-        if (cfg == null) {
-            log.error("doJaroCompany >>> scoringConfig NULL (gagal load dari BE), anggap tidak match");
-            return false;
-        }
-
-        SimilarityUtil sim = new SimilarityUtil();
-        int scr = 0;
-
-        String appDobStr = "";
-        if (app.getAppRequestDob() != null) {
-            var fmt = DateTimeFormatter.ofPattern(FORMAT_DATE);
-            appDobStr = app.getAppRequestDob().format(fmt);
-        }
-
-        // Di BE kamu tetap pakai code: NIK (maknai sebagai NPWP), NAMA, DOB, POB, ADDR
-        scr += computeScoreForField(cfg.getItem("NIK"), npwp, app.getAppRequestNpwp(), sim, true, "NIK");
-        scr += computeScoreForField(cfg.getItem("NAMA"), nama, app.getAppRequestCustName(), sim, false, "NAMA");
-        scr += computeScoreForField(cfg.getItem("DOB"), dob, appDobStr, sim, true, "DOB");
-        scr += computeScoreForField(cfg.getItem("POB"), pob, app.getAppRequestPob(), sim, false, "POB");
-        scr += computeScoreForField(cfg.getItem("ADDR"), addr, app.getAppRequestHomeAddress(), sim, false, "ADDR");
-
-        log.info("doJaroCompany >>> app={} totalScore={} (minNeed={})",
-                app.getNoRefCounter(), scr, cfg.getGlobalMinScore());
-
-        return scr >= cfg.getGlobalMinScore();
-    }
-
     private boolean selectMenu(Page driver, String menu) {
         Pattern menuPattern = buildMenuPattern(menu);
 
@@ -1640,123 +1531,10 @@ public class CombinationProcessingService {
         }
     }
 
-    private ScoringConfig getScoringConfig() {
-        long now = System.currentTimeMillis();
-        ScoringConfig cfg = scoringConfig;
-
-        boolean needReload = (cfg == null) || (now - scoringConfigLoadedAt > SCORING_TTL_MILLIS);
-        if (!needReload) return cfg;
-
-        synchronized (scoringLock) {
-            cfg = scoringConfig;
-            now = System.currentTimeMillis();
-            needReload = (cfg == null) || (now - scoringConfigLoadedAt > SCORING_TTL_MILLIS);
-            if (!needReload) return cfg;
-
-            log.info("ScoringConfig >>> refresh config dari backend");
-
-            ScoringConfig newCfg = fetchScoringConfigFromBackend();
-            if (newCfg != null && newCfg.getItemsByCode() != null && !newCfg.getItemsByCode().isEmpty()) {
-                scoringConfig = newCfg;
-                scoringConfigLoadedAt = now;
-                log.info("ScoringConfig >>> updated, minScore={}, codes={}",
-                        newCfg.getGlobalMinScore(), newCfg.getItemsByCode().keySet());
-                return newCfg;
-            } else {
-                if (cfg != null) {
-                    log.warn("ScoringConfig >>> gagal refresh, pakai config lama");
-                    return cfg;
-                } else {
-                    log.error("ScoringConfig >>> tidak ada config sama sekali (BE gagal & no cache)");
-                    return null;
-                }
-            }
-        }
-    }
-
-    private ScoringConfig fetchScoringConfigFromBackend() {
-        try {
-            Call<ApiResponse<GetScoring>> call = scoringApi.getScoring();
-            Response<ApiResponse<GetScoring>> resp = call.execute();
-
-            if (!resp.isSuccessful()) {
-                log.error("ScoringConfig >>> HTTP {} saat GET /api/scorring/detail", resp.code());
-                return null;
-            }
-
-            ApiResponse<GetScoring> body = resp.body();
-            if (!isValidScoringResponse(body)) {
-                log.error("ScoringConfig >>> response invalid: {}", body != null ? body.getMessage() : "null body");
-                return null;
-            }
-
-            GetScoring dto = body.getData().get(0);
-            ScoringConfig cfg = new ScoringConfig();
-            cfg.setGlobalMinScore(dto.getMinSkor() == null ? 0 : dto.getMinSkor());
-
-            Map<String, ScoringItem> map = new HashMap<>();
-            if (dto.getItem() != null) {
-                for (ScoringItem it : dto.getItem()) {
-                    if (it.getCode() != null) {
-                        map.put(it.getCode().toUpperCase(), it);
-                    }
-                }
-            }
-            cfg.setItemsByCode(map);
-            return cfg;
-
-        } catch (Exception e) {
-            log.error("ScoringConfig >>> exception saat load dari backend", e);
-            return null;
-        }
-    }
-
-    private boolean isValidScoringResponse(ApiResponse<GetScoring> body) {
-        if (body == null) {
-            return false;
-        }
-
-        if (!Boolean.TRUE.equals(body.getStatus())) {
-            return false;
-        }
-
-        var data = body.getData();
-        return data != null && !data.isEmpty();
-    }
-
     private String safeText(String s) {
         return s == null ? "" : s.trim();
     }
 
-    private int computeScoreForField(ScoringItem item, String source, String target, SimilarityUtil sim, boolean caseSensitive, String codeLog) {
-        if (item == null || !item.isActive()) {
-            return 0;
-        }
-
-        String s = safeText(source);
-        String t = safeText(target);
-        if (s.length() <= 2 || t.length() <= 2) {
-            return 0;
-        }
-
-        if (!caseSensitive) {
-            s = s.toUpperCase();
-            t = t.toUpperCase();
-        }
-
-        double dist = sim.countDistant(s, t);
-        double minThreshold = item.getMinSkor() == null ? 0.0 : item.getMinSkor();
-
-        if (dist >= minThreshold) {
-            int v = item.getValue() == null ? 0 : item.getValue();
-            log.debug("computeScore[{}] >>> dist={} >= {} → +{}", codeLog, dist, minThreshold, v);
-            return v;
-        }
-
-        log.debug("computeScore[{}] >>> dist={} < {} → +0", codeLog, dist, minThreshold);
-        return 0;
-    }
-
     private Frame findCombinationFrame(Page driver, Frame currentFrame, String noRef) {
         if (currentFrame != null && currentFrame.locator(MK_SEL_COMBINATION_DIV).count() > 0) {
             return currentFrame;
@@ -2,6 +2,8 @@ package com.ilkeiapps.slik.slikengine.service;
 
 import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.ilkeiapps.slik.slikengine.bean.PlaywrigthProcessResponse;
+import com.ilkeiapps.slik.slikengine.bean.ScreenMatch;
+import com.ilkeiapps.slik.slikengine.bean.ScreenTemplate;
 import com.ilkeiapps.slik.slikengine.entity.EngineConfig;
 import com.ilkeiapps.slik.slikengine.entity.QEngineConfig;
 import com.microsoft.playwright.*;
@@ -11,14 +13,12 @@ import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.opencv.core.*;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import java.io.InputStream;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -35,6 +35,17 @@ public class CommonProcessingService {
 
     private final EngineService engineService;
 
+    private final OpenCvTemplateRegistry templateRegistry;
+
+    private final ScreenClassifierService screenClassifierService;
+
+    private final ScreenSignatureService screenSignatureService;
+
+    private final PageWaitService pageWaitService;
+
+    @Value("${cbas.wait.progress-modal-max-millis:3000}")
+    private Long progressModalMaxMillis;
+
     @Value("${cbas.slik.profile.requestor}")
     private Boolean isProfileRequestor;
 
@@ -68,6 +79,31 @@ public class CommonProcessingService {
     private static final String LOGIN = "LOGIN";
     private static final String NONE = "NONE";
     private static final String CHECK_UTD = "checkUtd >>> path: ";
+    private static final String WELCOME_TEXT = "Yth. Bapak/IbuPejabat dan/atau Petugas Pelaksana SLIK,";
+
+    // urutan = prioritas saat skor sama
+    private static final List<ScreenTemplate> SCREEN_TEMPLATES = List.of(
+            new ScreenTemplate(SESS1, OPENCV_SESS1, 0.75),
+            new ScreenTemplate(SESS2, OPENCV_SESS2, 0.75),
+            new ScreenTemplate(CAP, OPENCV_CP3, 0.75),
+            new ScreenTemplate(UTD1, OPENCV_UN1, 0.75),
+            new ScreenTemplate(UTD2, OPENCV_UN2, 0.75),
+            new ScreenTemplate(HTTP, OPENCV_HTTP1, 0.75),
+            new ScreenTemplate(LIMA, OPENCV_LIMA1, 0.75),
+            new ScreenTemplate(RESET, OPENCV_RES1, 0.75),
+            new ScreenTemplate(RESET2, OPENCV_RES2, 0.75),
+            new ScreenTemplate(RESET3, OPENCV_RES3, 0.75),
+            new ScreenTemplate(SITE, OPENCV_SIT1, 0.75),
+            new ScreenTemplate(LOGIN, OPENCV_LOGIN, 0.75),
+            new ScreenTemplate(LOGIN, OPENCV_LOGIN1, 0.75));
+
+    private static final List<ScreenTemplate> UTD_CAP_TEMPLATES = List.of(
+            new ScreenTemplate(UTD1, OPENCV_UN1, 0.75),
+            new ScreenTemplate(UTD2, OPENCV_UN2, 0.75),
+            new ScreenTemplate(UTD3, OPENCV_UN3, 0.75),
+            new ScreenTemplate(CAP, OPENCV_CP3, 0.8));
+    private static final Set<String> SCREEN_CODES = SCREEN_TEMPLATES.stream().map(ScreenTemplate::getCode).collect(Collectors.toSet());
+    private static final Set<String> UTD_CAP_CODES = UTD_CAP_TEMPLATES.stream().map(ScreenTemplate::getCode).collect(Collectors.toSet());
     private static final String EL_REMOVE = "el => el.remove()";
     private static final String EL_DIALOG_DRAGGABLE = "div.ui-dialog.ui-widget.ui-widget-content.ui-corner-all.ui-front.ui-draggable.ui-resizable";
     private static final String LOGIN_CAPTCHA_NOT_MATCH_MSG = "Teks Captcha tidak sama";
@@ -119,7 +155,11 @@ public class CommonProcessingService {
                 return false;
             }
 
-            waitAfterLogin(pageDriver);
+            if (!waitAfterLogin(pageDriver)) {
+                log.error("processLogin >>> frame main tidak muncul setelah klik login");
+                response.setMessage("Halaman setelah login tidak termuat");
+                return false;
+            }
 
             Frame frameAfterLogin = webDriverService.getFrame("main");
             boolean captchaError = frameAfterLogin != null
@@ -297,17 +337,27 @@ public class CommonProcessingService {
         }
     }
 
-    private void waitAfterLogin(Page driver) {
+    // false kalau frame main tetap tidak ada setelah dua kali tunggu
+    private boolean waitAfterLogin(Page driver) {
         log.info("load0 start");
         driver.waitForLoadState(LoadState.LOAD);
         log.info("load0 end");
 
-        try {
-            Thread.sleep(5_000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("processLogin >>> sleep error", e);
+        if (!waitForMainFrame(driver, "login")) {
+            return false;
+        }
+        if (!pageWaitService.waitBlockLayerGone(driver.frame("main"), "login.blocker")) {
+            log.warn("processLogin >>> blocker masih ada setelah login, lanjut cek pesan");
         }
+        return true;
+    }
+
+    private boolean waitForMainFrame(Page driver, String key) {
+        if (pageWaitService.waitForFrame(driver, key + ".main-frame", f -> "main".equals(f.name()))) {
+            return true;
+        }
+        log.warn("{} >>> frame main belum ada, tunggu sekali lagi", key);
+        return pageWaitService.waitForFrame(driver, key + ".main-frame", f -> "main".equals(f.name()));
     }
 
     private boolean checkLoginErrorMessages(Page driver, PlaywrigthProcessResponse wrap) {
@@ -335,8 +385,16 @@ public class CommonProcessingService {
             log.warn("processLogin >>> gagal cek pesan error login: {}", e.getMessage());
         }
 
-        log.info("processLogin >>> small delay after login");
-        driver.waitForTimeout(3000);
+        log.info("processLogin >>> tunggu tulisan pembuka");
+        Frame main = driver.frame("main");
+        Locator welcome = main == null ? null : main.getByText(WELCOME_TEXT).first();
+        if (welcome == null
+            || (!pageWaitService.waitForState(welcome, WaitForSelectorState.VISIBLE, "login.welcome")
+                && !pageWaitService.waitForState(welcome, WaitForSelectorState.VISIBLE, "login.welcome"))) {
+            log.error("processLogin >>> tulisan pembuka tidak muncul");
+            wrap.setMessage("Tulisan pembuka tidak muncul");
+            return false;
+        }
         log.info("processLogin >>> cek frame");
         return true;
     }
@@ -351,7 +409,7 @@ public class CommonProcessingService {
             }
 
             Frame frame = driver.frame("main");
-            Locator welcome = frame.getByText("Yth. Bapak/IbuPejabat dan/atau Petugas Pelaksana SLIK,");
+            Locator welcome = frame.getByText(WELCOME_TEXT);
 
             if (welcome == null || !welcome.isVisible()) {
                 log.error("processLogin >>> Tulisan pembuka tidak terdeteksi");
@@ -389,11 +447,13 @@ public class CommonProcessingService {
         driver.navigate("https://slik.ojk.go.id/slik/authentication/change-group/15");
         driver.waitForLoadState(LoadState.LOAD);
 
-        try {
-            Thread.sleep(5_000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("processLogin >>> sleep error", e);
+        if (!waitForMainFrame(driver, "change-group")) {
+            log.error("processLogin >>> frame main tidak muncul setelah ganti role");
+            wrap.setMessage("Tidak dapat frame");
+            return null;
+        }
+        if (!pageWaitService.waitBlockLayerGone(driver.frame("main"), "change-group.blocker")) {
+            log.warn("processLogin >>> blocker masih ada setelah ganti role");
         }
 
         List<Frame> frames = driver.frames();
@@ -407,6 +467,10 @@ public class CommonProcessingService {
     }
 
     public byte[] screenshot() {
+        return screenshot(true);
+    }
+
+    public byte[] screenshot(boolean fullPage) {
         Page driver = webDriverService.getDriver();
         if (driver == null) {
             log.warn("screenshot >>> driver null, tidak bisa mengambil screenshot");
@@ -419,7 +483,7 @@ public class CommonProcessingService {
         }
 
         try {
-            return driver.screenshot(new Page.ScreenshotOptions().setFullPage(true).setTimeout(5000.0));
+            return driver.screenshot(new Page.ScreenshotOptions().setFullPage(fullPage).setTimeout(5000.0));
         } catch (PlaywrightException e) {
             handlePlaywrightScreenshotException(e);
         } catch (Exception e) {
@@ -518,22 +582,17 @@ public class CommonProcessingService {
             return false;
         }
 
-        for (int i = 0; i < 3; i++) {
-            log.info("checkProgressBar >>> check #{}", i);
-            if (isProgressModalVisibleOnce(frame)) {
-                return true;
-            }
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("checkProgressBar >>> interrupted while sleeping", e);
-                return false;
-            }
+        if (!isProgressModalVisibleOnce(frame)) {
+            return false;
         }
 
-        log.info("checkProgressBar >>> max attempts reached, return false");
-        return false;
+        // modal yang hilang sendiri tidak perlu dihapus, hanya yang masih tampil setelah timeout adaptif
+        if (pageWaitService.waitBlockLayerGone(frame, "progress-modal", progressModalMaxMillis)) {
+            log.info("checkProgressBar >>> modal hilang sendiri, result=false");
+            return false;
+        }
+
+        return isProgressModalVisibleOnce(frame);
     }
 
     private boolean isProgressModalVisibleOnce(Frame frame) {
@@ -765,186 +824,113 @@ public class CommonProcessingService {
     }
 
     public boolean isUtd() {
-        var sc = this.screenshot();
-        var found = this.checkUtd(OPENCV_UN1, sc, 0.9f);
-        if (!found) {
-            return this.checkUtd(OPENCV_UN2, sc, 0.9f);
+        Mat gray = templateRegistry.decodeGray(this.screenshot());
+        try {
+            return this.checkUtd(OPENCV_UN1, gray, 0.9f) || this.checkUtd(OPENCV_UN2, gray, 0.9f);
+        } finally {
+            releaseMat(gray);
         }
-        return true;
     }
 
     public boolean isCaptcha() {
-        var sc = this.screenshot();
-        return this.checkUtd(OPENCV_CAP3, sc, 0.9f);
+        Mat gray = templateRegistry.decodeGray(this.screenshot());
+        try {
+            return this.checkUtd(OPENCV_CAP3, gray, 0.9f);
+        } finally {
+            releaseMat(gray);
+        }
     }
 
     public boolean isSession() {
-        var sc = this.screenshot();
-        var found = this.checkUtd(OPENCV_SESS1, sc, 0.9f);
-        if (!found) {
-            return this.checkUtd(OPENCV_SESS2, sc, 0.9f);
+        Mat gray = templateRegistry.decodeGray(this.screenshot());
+        try {
+            return this.checkUtd(OPENCV_SESS1, gray, 0.9f) || this.checkUtd(OPENCV_SESS2, gray, 0.9f);
+        } finally {
+            releaseMat(gray);
         }
-        return true;
     }
 
-    public String checkUtdCap(byte[] sc) {
-        var found = this.checkUtd(OPENCV_UN1, sc, 0.75f);
-        if (found) {
-            return UTD1;
-        }
-
-        found = this.checkUtd(OPENCV_UN2, sc, 0.75f);
-        if (found) {
-            return UTD2;
-        }
-
-        found = this.checkUtd(OPENCV_UN3, sc, 0.75f);
-        if (found) {
-            return UTD3;
+    // cek DOM dulu, screenshot + OpenCV hanya kalau DOM tidak bisa memastikan
+    public String detectScreen() {
+        String dom = screenSignatureService.detect(webDriverService.getDriver(), SCREEN_CODES);
+        if (dom != null) {
+            return dom;
         }
+        return checkScreenshot(this.screenshot());
+    }
 
-        found = this.checkUtd(OPENCV_CP3, sc, 0.8f);
-        if (found) {
-            return CAP;
+    public String detectUtdCap() {
+        String dom = screenSignatureService.detect(webDriverService.getDriver(), UTD_CAP_CODES);
+        if (NONE.equals(dom) || UTD_CAP_CODES.contains(dom)) {
+            return dom;
         }
+        return checkUtdCap(this.screenshot());
+    }
 
-        return NONE;
+    public String checkUtdCap(byte[] sc) {
+        ScreenMatch best = classifyBest(sc, UTD_CAP_TEMPLATES, "checkUtdCap");
+        return best == null ? NONE : best.getCode();
     }
 
     public String checkScreenshot(byte[] sc) {
-        if (sc == null || sc.length == 0) {
-            log.warn("checkScreenshot >>> screenshot kosong, skip deteksi UTD");
-            return NONE;
-        }
+        ScreenMatch best = classifyBest(sc, SCREEN_TEMPLATES, "checkScreenshot");
+        return best == null ? NONE : best.getCode();
+    }
 
-        if (this.checkUtd(OPENCV_SESS1, sc, 0.75f)) {
-            return SESS1;
-        }
-        if (this.checkUtd(OPENCV_SESS2, sc, 0.75f)) {
-            return SESS2;
-        }
-        if (this.checkUtd(OPENCV_CP3, sc, 0.75f)) {
-            return CAP;
-        }
-        if (this.checkUtd(OPENCV_UN1, sc, 0.75f)) {
-            return UTD1;
-        }
-        if (this.checkUtd(OPENCV_UN2, sc, 0.75f)) {
-            return UTD2;
-        }
-        if (this.checkUtd(OPENCV_HTTP1, sc, 0.75f)) {
-            return HTTP;
-        }
-        if (this.checkUtd(OPENCV_LIMA1, sc, 0.75f)) {
-            return LIMA;
+    public List<ScreenMatch> classifyScreenshot(byte[] sc) {
+        Mat gray = templateRegistry.decodeGray(sc);
+        if (gray == null) {
+            return List.of();
         }
-        if (this.checkUtd(OPENCV_RES1, sc, 0.75f)) {
-            return RESET;
-        }
-        if (this.checkUtd(OPENCV_RES2, sc, 0.75f)) {
-            return RESET2;
-        }
-        if (this.checkUtd(OPENCV_RES3, sc, 0.75f)) {
-            return RESET3;
-        }
-        if (this.checkUtd(OPENCV_SIT1, sc, 0.75f)) {
-            return SITE;
-        }
-        if (this.checkUtd(OPENCV_LOGIN, sc, 0.75f)) {
-            return LOGIN;
+
+        try {
+            return screenClassifierService.classify(gray, SCREEN_TEMPLATES);
+        } finally {
+            releaseMat(gray);
         }
-        if (this.checkUtd(OPENCV_LOGIN1, sc, 0.75f)) {
-            return LOGIN;
+    }
+
+    private ScreenMatch classifyBest(byte[] sc, List<ScreenTemplate> templates, String caller) {
+        Mat gray = templateRegistry.decodeGray(sc);
+        if (gray == null) {
+            log.warn("{} >>> screenshot kosong / gagal decode, skip deteksi", caller);
+            return null;
         }
 
-        return NONE;
+        try {
+            ScreenMatch best = screenClassifierService.best(gray, templates);
+            if (best != null) {
+                log.info("{} >>> {} found ({}) maxVal={} at ({},{})", caller, best.getCode(), best.getPath(),
+                        best.getMaxVal(), best.getX(), best.getY());
+            }
+            return best;
+        } finally {
+            releaseMat(gray);
+        }
     }
 
-    private boolean checkUtd(String path, byte[] sc, float threshHold) {
+    private boolean checkUtd(String path, Mat sourceGray, float threshHold) {
         log.info("{}{}", CHECK_UTD, path);
 
-        if (sc == null || sc.length == 0) {
+        if (sourceGray == null || sourceGray.empty()) {
             log.warn("{}{} >>> screenshot kosong, skip matching", CHECK_UTD, path);
             return false;
         }
 
-        Mat source = null;
-        Mat template = null;
-        Mat sourceGray = new Mat();
-        Mat templateGray = new Mat();
-        Mat result = new Mat();
-
-        try {
-            MatOfByte matOfByte = new MatOfByte(sc);
-            source = Imgcodecs.imdecode(matOfByte, Imgcodecs.IMREAD_COLOR);
-
-            if (source.empty()) {
-                log.warn("{}{} >>> hasil decode source kosong, skip", CHECK_UTD, path);
-                return false;
-            }
-
-            template = this.readImageAsMat(path);
-            if (template == null || template.empty()) {
-                log.warn("{}{} >>> template tidak ditemukan / kosong", CHECK_UTD, path);
-                return false;
-            }
-
-            Imgproc.cvtColor(source, sourceGray, Imgproc.COLOR_BGR2GRAY);
-            Imgproc.cvtColor(template, templateGray, Imgproc.COLOR_BGR2GRAY);
-
-            int resultCols = sourceGray.cols() - templateGray.cols() + 1;
-            int resultRows = sourceGray.rows() - templateGray.rows() + 1;
-
-            if (resultCols <= 0 || resultRows <= 0) {
-                log.warn("{}{} >>> ukuran template lebih besar dari source, cols={}, rows={}",
-                        CHECK_UTD, path, resultCols, resultRows);
-                return false;
-            }
-
-            result.create(resultRows, resultCols, CvType.CV_32FC1);
-
-            // Perform template matching
-            Imgproc.matchTemplate(sourceGray, templateGray, result, Imgproc.TM_CCOEFF_NORMED);
-            Core.MinMaxLocResult mmr = Core.minMaxLoc(result);
-
-            log.debug("{}{} >>> maxVal={}", CHECK_UTD, path, mmr.maxVal);
-
-            if (mmr.maxVal < threshHold) {
-                log.info("{}{} not found with conflevel: {}", CHECK_UTD, path, mmr.maxVal);
-                return false;
-            }
-
-            log.info("{}{} found", CHECK_UTD, path);
-            return true;
-        } catch (CvException e) {
-            log.error("{}{} >>> OpenCV error saat matching", CHECK_UTD, path, e);
-            return false;
-        } catch (Exception e) {
-            log.error("{}{} >>> error tak terduga saat matching", CHECK_UTD, path, e);
+        ScreenMatch m = screenClassifierService.match(sourceGray, new ScreenTemplate(path, path, threshHold), 0);
+        if (m == null || !m.isMatched()) {
+            log.info("{}{} not found with conflevel: {}", CHECK_UTD, path, m == null ? null : m.getMaxVal());
             return false;
-        } finally {
-            if (source != null) {
-                source.release();
-            }
-            if (template != null) {
-                template.release();
-            }
-            sourceGray.release();
-            templateGray.release();
-            result.release();
         }
+
+        log.info("{}{} found", CHECK_UTD, path);
+        return true;
     }
 
-    private Mat readImageAsMat(String path) {
-        var resource = new ClassPathResource(path);
-        try (InputStream is = resource.getInputStream()) {
-            byte[] imageBytes = is.readAllBytes();
-            MatOfByte mob = new MatOfByte(imageBytes);
-            return Imgcodecs.imdecode(mob, Imgcodecs.IMREAD_COLOR);
-        } catch (Exception e) {
-            log.error("Error reading image from path: {}", path, e);
+    private void releaseMat(Mat mat) {
+        if (mat != null) {
+            mat.release();
         }
-        return null;
     }
 
     public boolean clickYesButtonInFrame(Frame frame) {
@@ -2,25 +2,18 @@ package com.ilkeiapps.slik.slikengine.service;
 
 import com.ilkeiapps.slik.slikengine.bean.*;
 import com.ilkeiapps.slik.slikengine.retrofit.IM2M;
-import com.ilkeiapps.slik.slikengine.retrofit.IM2MImage;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.LoadState;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
-import okhttp3.RequestBody;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,8 +29,10 @@ public class DownloadProcessingService {
     private final CommonProcessingService commonProcessingService;
     private final EngineService engineService;
     private final IM2M m2mService;
-    private final IM2MImage m2mImageService;
+    private final M2mAsyncService m2mAsyncService;
     private final ActivityServices activityServices;
+    private final IdebUploadPipelineService idebUploadPipelineService;
+    private final PageWaitService pageWaitService;
 
     @Value("${cbas.engine.folder}")
     private String engineFolder;
@@ -49,9 +44,6 @@ public class DownloadProcessingService {
     private boolean useDownloadNoRefFilter;
 
     private static final String SEARCH_BUTTON = "#search-button";
-    private static final String TEXT_PLAIN = "text/plain";
-    private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
-    private static final String GAGAL_SLEEP = "batch >>> gagal sleep";
     private static final String DOWNLOAD_MANUAL = "Download Manual";
     private static final String BATCH_FAIL_REPORT_DOWNLOAD_DONE = "batch >>> fail to report download done for data: {}";
     private static final String GAGAL_DATA_REQUEST = "manual >>> gagal data request";
@@ -98,7 +90,7 @@ public class DownloadProcessingService {
 
         driver.waitForLoadState(LoadState.LOAD);
 
-        return sleepSafely();
+        return waitSettled(frame, "download.manual-menu");
     }
 
     private boolean processSingleDownload(Page driver, Frame frame, AppRequest d, List<DownloadBean> downloadBeans) throws Exception {
@@ -110,7 +102,7 @@ public class DownloadProcessingService {
         if (useDownloadNoRefFilter) {
             if (!hasNoRef) {
                 log.warn("manual >>> {} noRefCounter kosong, skip proses download manual (useDownloadNoRefFilter=true)", d.getNoRefCounter());
-                return sleepSafely();
+                return waitSettled(frame, "download.manual-item");
             }
 
             if (!fillUserReference(frame, noRef)) {
@@ -135,7 +127,7 @@ public class DownloadProcessingService {
         if (isNoDataFound(frame, d.getNoRefCounter())) {
             log.warn("manual >>> {} hasil permintaan SLIK: TIDAK ADA DATA YANG DITEMUKAN, rollback ke approval", d.getNoRefCounter());
             rollbackToApproval(d.getNoRefCounter());
-            return sleepSafely();
+            return waitSettled(frame, "download.manual-item");
         }
 
         List<Locator> rows = readResultRows(frame, d.getNoRefCounter());
@@ -145,7 +137,7 @@ public class DownloadProcessingService {
 
         processDownloadedFiles(downloadBeans, true);
 
-        return sleepSafely();
+        return waitSettled(frame, "download.manual-item");
     }
 
     private boolean isNoDataFound(Frame frame, String noRefCounter) {
@@ -215,15 +207,10 @@ public class DownloadProcessingService {
         }
     }
 
-    private boolean sleepSafely() {
-        try {
-            Thread.sleep(5000L);
-            return true;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error(GAGAL_SLEEP, e);
-            return false;
-        }
+    // pengganti sleep 5 detik: lanjut begitu blocker SLIK hilang
+    private boolean waitSettled(Frame frame, String key) {
+        pageWaitService.waitBlockLayerGone(frame, key);
+        return true;
     }
 
     private boolean fillUserReference(Frame frame, String refCode) {
@@ -254,8 +241,7 @@ public class DownloadProcessingService {
     }
 
     private boolean handleUtdCap(Frame frame, String noRefCounter) {
-        byte[] sc = commonProcessingService.screenshot();
-        String res = commonProcessingService.checkUtdCap(sc);
+        String res = commonProcessingService.detectUtdCap();
         if ("NONE".equals(res)) {
             return true;
         }
@@ -267,8 +253,7 @@ public class DownloadProcessingService {
             okb1.click(new Locator.ClickOptions().setTimeout(5000));
         }
 
-        sc = commonProcessingService.screenshot();
-        res = commonProcessingService.checkUtdCap(sc);
+        res = commonProcessingService.detectUtdCap();
         return "NONE".equals(res);
     }
 
@@ -359,65 +344,10 @@ public class DownloadProcessingService {
         commonProcessingService.removeProgressModal(frame);
     }
 
-    private void processDownloadedFiles(List<DownloadBean> downloads, boolean notifyM2m) throws IOException {
-        for (DownloadBean ap : downloads) {
-            log.info("manual >>> proses upload file: {}", ap.getFile());
-
-            Path sourcePath = Paths.get(engineFolder, ap.getFile());
-            File sourceFile = sourcePath.toFile();
-            if (!sourceFile.exists()) {
-                continue;
-            }
-
-            // upload file ke MinIO
-            RequestBody code = RequestBody.create(robotName, MediaType.parse(TEXT_PLAIN));
-            RequestBody reffId = RequestBody.create(ap.getNoRefCounter(), MediaType.parse(TEXT_PLAIN));
-            RequestBody fileStart = RequestBody.create(sourceFile, MediaType.parse(APPLICATION_OCTET_STREAM));
-
-            MultipartBody.Part bodyStart = MultipartBody.Part.createFormData("file", ap.getNoRefCounter() + ".ideb", fileStart);
-
-            var uploadCall = m2mImageService.uploadIdeb(code, reffId, bodyStart);
-            log.info("manual >>> proses upload file: {}", ap.getFile());
-
-            retrofit2.Response<?> uploadResponse = uploadCall.execute();
-            if (!uploadResponse.isSuccessful()) {
-                log.error("manual >>> uploadIdeb gagal untuk {}", ap.getFile());
-            }
-
-            // === HANYA UNTUK FLOW NORMAL (DATA FOUND) ===
-            if (notifyM2m) {
-                ProcessReportRequest pr = new ProcessReportRequest();
-                pr.setStatusCode(ap.getNoRefCounter());
-                var callDownloadDone = m2mService.downloadDone(pr);
-                retrofit2.Response<?> downloadDoneResponse = callDownloadDone.execute();
-                if (!downloadDoneResponse.isSuccessful()) {
-                    log.error("manual >>> downloadDone gagal untuk {}", ap.getNoRefCounter());
-                }
-
-                SubmitRequest sr = new SubmitRequest();
-                sr.setIdAppRequest(ap.getId());
-                sr.setApprovalVariable("FIN");
-                var callCallback = m2mService.processCallback(sr);
-                retrofit2.Response<?> callbackResponse = callCallback.execute();
-                if (!callbackResponse.isSuccessful()) {
-                    log.error("manual >>> processCallback gagal untuk {}", ap.getId());
-                }
-            }
-
-            // pindahkan file ke folder processed
-            Path processedDir = Paths.get(engineFolder, "processed");
-            try {
-                Files.createDirectories(processedDir);
-
-                Path destinationPath = processedDir.resolve(sourcePath.getFileName());
-                Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-                log.info("File copied to: {}", destinationPath);
-
-                Files.deleteIfExists(sourcePath);
-            } catch (IOException e) {
-                log.error("manual >>> gagal memindahkan file {} ke processed", ap.getFile(), e);
-            }
-        }
+    private void processDownloadedFiles(List<DownloadBean> downloads, boolean notifyM2m) {
+        // upload, downloadDone, callback dan pindah file dikerjakan pipeline di thread sendiri
+        log.info("manual >>> {} file masuk antrian upload", downloads.size());
+        idebUploadPipelineService.submit(downloads, IdebOutboxService.TARGET_IMAGE, notifyM2m);
     }
 
     public void processSingleDownloadedFile(AppRequest req, Download download, boolean notifyM2m) {
@@ -494,9 +424,7 @@ public class DownloadProcessingService {
 
         driver.waitForLoadState();
 
-        if (sleepSafely(2_000L)) {
-            return;
-        }
+        pageWaitService.waitBlockLayerGone(frame, "download.batch-menu");
 
         List<DownloadBean> downloads = new ArrayList<>();
 
@@ -533,9 +461,7 @@ public class DownloadProcessingService {
         }
 
         driver.waitForLoadState(LoadState.LOAD);
-        if (sleepSafely(5_000L)) {
-            return false;
-        }
+        pageWaitService.waitBlockLayerGone(frame, "download.batch-search");
 
         List<Locator> rows = findBatchResultRows(frame);
         if (rows.isEmpty()) {
@@ -574,17 +500,6 @@ public class DownloadProcessingService {
         }
     }
 
-    private boolean sleepSafely(long millis) {
-        try {
-            Thread.sleep(millis);
-            return false;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error(GAGAL_SLEEP, e);
-            return true;
-        }
-    }
-
     private boolean fillBatchReference(Frame frame, String refCode) {
         try {
             frame.locator("#BATCH_REFERENCE_CODE2")
@@ -696,9 +611,7 @@ public class DownloadProcessingService {
         }
 
         Download download = waitForDownload(driver, scr, idm);
-        if (sleepSafely(5_000L)) {
-            return;
-        }
+        pageWaitService.waitBlockLayerGone(frame, "download.batch-item");
 
         clickOkIfPresent(frame, code);
 
@@ -734,127 +647,18 @@ public class DownloadProcessingService {
         ProcessReportRequest pr = new ProcessReportRequest();
         pr.setIdAppDistribute(idm);
 
-        var call = m2mService.processFail(pr);
-        try {
-            retrofit2.Response<?> response = call.execute();
-            if (!response.isSuccessful()) {
-                log.error("batch >>> processFail not successful for id {} code {}", idm, code);
-            }
-        } catch (IOException e) {
-            log.error(BATCH_FAIL_REPORT_DOWNLOAD_DONE, idm, e);
-        }
+        m2mAsyncService.send(code, "processFail", () -> m2mService.processFail(pr));
     }
 
     private void reportNotFoundByCode(String code) {
         ProcessReportRequest pr = new ProcessReportRequest();
         pr.setStatusCode(code);
 
-        var call = m2mService.notFoundByCode(pr);
-        try {
-            retrofit2.Response<?> response = call.execute();
-            if (!response.isSuccessful()) {
-                log.error("batch >>> notFoundByCode not successful for code {}", code);
-            }
-        } catch (IOException e) {
-            log.error("batch >>> fail to report not found by code: {}", code, e);
-        }
+        m2mAsyncService.send(code, "notFoundByCode", () -> m2mService.notFoundByCode(pr));
     }
 
     private void processBatchDownloadedFiles(List<DownloadBean> downloads) {
-        for (DownloadBean ap : downloads) {
-            String fileName = ap.getFile();
-            Path sourcePath = Paths.get(engineFolder, fileName);
-            Path processedDir = Paths.get(engineFolder, "processed");
-
-            if (!Files.exists(sourcePath)) {
-                log.warn("batch >>> source file not found: {}", sourcePath);
-            } else {
-                if (ensureProcessedDirExists(processedDir)) {
-                    log.info("batch >>> report done for data: {}, file source {}  file dest {}",
-                            ap.getNoRefCounter(), sourcePath, processedDir);
-
-                    reportDownloadDone(ap);
-                    submitDownloadCallback(ap);
-                    uploadIdebFile(ap, sourcePath);
-                    moveFileToProcessed(sourcePath, processedDir);
-                }
-            }
-        }
-    }
-
-    private boolean ensureProcessedDirExists(Path processedDir) {
-        try {
-            Files.createDirectories(processedDir);
-            return true;
-        } catch (IOException e) {
-            log.error("batch >>> gagal membuat folder processed: {}", processedDir, e);
-            return false;
-        }
-    }
-
-    private void reportDownloadDone(DownloadBean ap) {
-        ProcessReportRequest pr = new ProcessReportRequest();
-        pr.setStatusCode(ap.getNoRefCounter());
-
-        var call = m2mService.downloadDone(pr);
-        try {
-            retrofit2.Response<?> resp = call.execute();
-            if (!resp.isSuccessful()) {
-                log.error(BATCH_FAIL_REPORT_DOWNLOAD_DONE, ap.getNoRefCounter());
-            }
-        } catch (IOException e) {
-            log.error(BATCH_FAIL_REPORT_DOWNLOAD_DONE, ap.getNoRefCounter(), e);
-        }
-    }
-
-    private void submitDownloadCallback(DownloadBean ap) {
-        log.info("batch >>> submit callback for data: {}", ap.getNoRefCounter());
-
-        SubmitRequest sr = new SubmitRequest();
-        sr.setIdAppRequest(ap.getId());
-        sr.setApprovalVariable("FIN");
-
-        var call = m2mService.processCallback(sr);
-        try {
-            retrofit2.Response<?> resp = call.execute();
-            if (!resp.isSuccessful()) {
-                log.error("batch >>> fail to submit download callback for data: {}", ap.getNoRefCounter());
-            }
-        } catch (IOException e) {
-            log.error("batch >>> fail to submit download callback for data: {}", ap.getNoRefCounter(), e);
-        }
-    }
-
-    private void uploadIdebFile(DownloadBean ap, Path sourcePath) {
-        log.info("batch >>> upload file: {} for data: {}", sourcePath, ap.getNoRefCounter());
-
-        RequestBody code = RequestBody.create(robotName, MediaType.parse(TEXT_PLAIN));
-        RequestBody reffId = RequestBody.create(ap.getNoRefCounter(), MediaType.parse(TEXT_PLAIN));
-        RequestBody fileStart = RequestBody.create(sourcePath.toFile(), MediaType.parse(APPLICATION_OCTET_STREAM));
-
-        MultipartBody.Part bodyStart =
-                MultipartBody.Part.createFormData("file", ap.getNoRefCounter() + ".ideb", fileStart);
-
-        var call = m2mService.uploadIdeb(code, reffId, bodyStart);
-        try {
-            retrofit2.Response<?> resp = call.execute();
-            if (!resp.isSuccessful()) {
-                log.error("batch >>> fail to upload file: {} for data: {}", sourcePath, ap.getNoRefCounter());
-            }
-        } catch (IOException e) {
-            log.error("batch >>> fail to upload file: {} for data: {}", sourcePath, ap.getNoRefCounter(), e);
-        }
-    }
-
-    private void moveFileToProcessed(Path sourcePath, Path processedDir) {
-        Path destinationPath = processedDir.resolve(sourcePath.getFileName());
-        try {
-            Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-            log.info("File copied to: {}", destinationPath);
-
-            Files.deleteIfExists(sourcePath);
-        } catch (IOException e) {
-            log.error("batch >>> fail to copy/delete file: {} to: {} with error: {}", sourcePath, destinationPath, e.getMessage(), e);
-        }
+        log.info("batch >>> {} file masuk antrian upload", downloads.size());
+        idebUploadPipelineService.submit(downloads, IdebOutboxService.TARGET_M2M, true);
     }
 }
@@ -0,0 +1,244 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class EngineFileStore {
+
+    @Value("${cbas.engine.folder}")
+    private String engineFolder;
+
+    // 0 = file di processed/ tidak pernah dihapus
+    @Value("${cbas.engine.store.retention-days:0}")
+    private Integer retentionDays;
+
+    @Value("${cbas.engine.store.compact-batch:1000}")
+    private Integer compactBatch;
+
+    @Value("${cbas.engine.store.dedupe-cache:2000}")
+    private Integer dedupeCacheSize;
+
+    private static final String PROCESSED = "processed";
+    private static final DateTimeFormatter SHARD_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    // hash -> file processed terakhir, untuk dedupe download ulang dengan isi yang sama
+    private Map<String, Path> recentHashes;
+
+    public Path resolve(String fileName) {
+        return Paths.get(engineFolder, fileName);
+    }
+
+    public Path getProcessedRoot() {
+        return Paths.get(engineFolder, PROCESSED);
+    }
+
+    // processed/yyyy/MM/dd supaya satu folder tidak berisi puluhan ribu file
+    public Path getProcessedShard(LocalDate date) {
+        return getProcessedRoot().resolve(date.format(SHARD_FORMAT));
+    }
+
+    public Path moveToProcessed(Path source) throws IOException {
+        String hash = hash(source);
+        Path shard = getProcessedShard(LocalDate.now());
+        Files.createDirectories(shard);
+
+        Path existing = getRecentHashes().get(hash);
+        if (existing != null && Files.exists(existing)) {
+            Files.deleteIfExists(source);
+            log.info("fileStore >>> {} sama dengan {}, file duplikat dihapus", source.getFileName(), existing);
+            return existing;
+        }
+
+        Path destination = shard.resolve(source.getFileName());
+        if (Files.exists(destination)) {
+            if (hash.equals(hash(destination))) {
+                Files.deleteIfExists(source);
+                rememberHash(hash, destination);
+                log.info("fileStore >>> {} sudah ada di {}, file duplikat dihapus", source.getFileName(), shard);
+                return destination;
+            }
+            destination = shard.resolve(withSuffix(source.getFileName().toString(), hash.substring(0, 8)));
+        }
+
+        move(source, destination);
+        rememberHash(hash, destination);
+        log.info("fileStore >>> file dipindah ke: {}", destination);
+        return destination;
+    }
+
+    // cari file yang sudah dipindah, misal engine mati sebelum outbox ditandai selesai
+    public Path findProcessed(String fileName) {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 2; i++) {
+            Path candidate = getProcessedShard(today.minusDays(i)).resolve(fileName);
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+
+        Path legacy = getProcessedRoot().resolve(fileName);
+        return Files.exists(legacy) ? legacy : null;
+    }
+
+    // pindahkan file lama di processed/ (flat) ke shard tanggal, lalu hapus shard yang lewat retensi
+    public void compact() {
+        Path root = getProcessedRoot();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        int moved = compactFlatFiles(root);
+        int deleted = applyRetention(root);
+        if (moved > 0 || deleted > 0) {
+            log.info("fileStore >>> compact selesai, {} file dipindah ke shard, {} file dihapus", moved, deleted);
+        }
+    }
+
+    private int compactFlatFiles(Path root) {
+        List<Path> flat;
+        try (Stream<Path> stream = Files.list(root)) {
+            flat = stream.filter(Files::isRegularFile).limit(compactBatch).toList();
+        } catch (IOException e) {
+            log.error("fileStore >>> gagal baca folder {}", root, e);
+            return 0;
+        }
+
+        int moved = 0;
+        for (Path file : flat) {
+            try {
+                LocalDate date = LocalDate.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+                Path shard = getProcessedShard(date);
+                Files.createDirectories(shard);
+
+                Path destination = shard.resolve(file.getFileName());
+                if (Files.exists(destination)) {
+                    destination = shard.resolve(withSuffix(file.getFileName().toString(), hash(file).substring(0, 8)));
+                }
+                move(file, destination);
+                moved++;
+            } catch (IOException e) {
+                log.warn("fileStore >>> gagal compact file {}: {}", file, e.getMessage());
+            }
+        }
+        return moved;
+    }
+
+    private int applyRetention(Path root) {
+        if (retentionDays == null || retentionDays <= 0) {
+            return 0;
+        }
+
+        Instant limit = LocalDate.now().minusDays(retentionDays).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        int deleted = 0;
+        try (Stream<Path> stream = Files.walk(root)) {
+            List<Path> paths = stream.sorted(Comparator.reverseOrder()).toList();
+            for (Path p : paths) {
+                if (p.equals(root)) {
+                    continue;
+                }
+                deleted += deleteExpired(p, limit);
+            }
+        } catch (IOException e) {
+            log.error("fileStore >>> gagal retensi folder {}", root, e);
+        }
+        return deleted;
+    }
+
+    private int deleteExpired(Path p, Instant limit) {
+        try {
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> children = Files.list(p)) {
+                    if (children.findAny().isEmpty()) {
+                        Files.deleteIfExists(p);
+                    }
+                }
+                return 0;
+            }
+
+            if (Files.getLastModifiedTime(p).toInstant().isBefore(limit)) {
+                Files.deleteIfExists(p);
+                return 1;
+            }
+        } catch (IOException e) {
+            log.warn("fileStore >>> gagal hapus {}: {}", p, e.getMessage());
+        }
+        return 0;
+    }
+
+    // rename di filesystem yang sama: tidak ada salinan kedua, dan tidak pernah setengah jadi
+    private void move(Path source, Path destination) throws IOException {
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.warn("fileStore >>> atomic move tidak didukung untuk {}, pakai move biasa", destination);
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public String hash(Path file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                md.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private synchronized Map<String, Path> getRecentHashes() {
+        if (recentHashes == null) {
+            int max = dedupeCacheSize;
+            recentHashes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+                    return size() > max;
+                }
+            });
+        }
+        return recentHashes;
+    }
+
+    private void rememberHash(String hash, Path path) {
+        getRecentHashes().put(hash, path);
+    }
+
+    private String withSuffix(String fileName, String suffix) {
+        int dotIdx = fileName.lastIndexOf('.');
+        if (dotIdx <= 0) {
+            return fileName + "-" + suffix;
+        }
+        return fileName.substring(0, dotIdx) + "-" + suffix + fileName.substring(dotIdx);
+    }
+}
@@ -0,0 +1,198 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ilkeiapps.slik.slikengine.bean.AppRequestPayload;
+import com.ilkeiapps.slik.slikengine.bean.AppRequestWrapper;
+import com.ilkeiapps.slik.slikengine.entity.EngineJob;
+import com.ilkeiapps.slik.slikengine.entity.QEngineJob;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class EngineJobService {
+
+    private final EntityManager em;
+
+    private final CriteriaBuilderFactory configBuilder;
+
+    private final ObjectMapper objectMapper;
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    public static final String SEG_BATCH = "batch";
+    public static final String SEG_MANUAL = "manual";
+    public static final String SEG_COMBINE = "combine";
+    public static final String SEG_MANUAL_DOWNLOAD = "manualDownload";
+    public static final String SEG_BATCH_DOWNLOAD = "batchDownload";
+
+    @Value("${cbas.queue.priority.batch:1}")
+    private Integer priorityBatch;
+
+    @Value("${cbas.queue.priority.manual:2}")
+    private Integer priorityManual;
+
+    @Value("${cbas.queue.priority.combine:3}")
+    private Integer priorityCombine;
+
+    @Value("${cbas.queue.priority.manual-download:4}")
+    private Integer priorityManualDownload;
+
+    @Value("${cbas.queue.priority.batch-download:5}")
+    private Integer priorityBatchDownload;
+
+    @Value("${cbas.queue.max-attempt:3}")
+    private Integer maxAttempt;
+
+    public List<EngineJob> enqueue(AppRequestWrapper src) {
+        List<EngineJob> jobs = new ArrayList<>();
+        if (src == null) {
+            return jobs;
+        }
+
+        addJob(jobs, SEG_BATCH, priorityBatch, src.getBatch());
+        addJob(jobs, SEG_MANUAL, priorityManual, src.getManual());
+        addJob(jobs, SEG_COMBINE, priorityCombine, src.getCombine());
+        addJob(jobs, SEG_MANUAL_DOWNLOAD, priorityManualDownload, src.getManualDownload());
+        addJob(jobs, SEG_BATCH_DOWNLOAD, priorityBatchDownload, src.getBatchDownload());
+
+        this.em.flush();
+        log.info("enqueue >>> {} job masuk antrian", jobs.size());
+        return jobs;
+    }
+
+    private void addJob(List<EngineJob> jobs, String segment, Integer priority, AppRequestPayload payload) {
+        if (payload == null) {
+            return;
+        }
+
+        try {
+            var job = new EngineJob();
+            job.setSegment(segment);
+            job.setPriority(priority);
+            job.setStatus(QUEUED);
+            job.setPayload(objectMapper.writeValueAsString(payload));
+            job.setAttempt(0);
+            job.setCreateDate(LocalDateTime.now());
+            this.em.persist(job);
+            jobs.add(job);
+        } catch (Exception e) {
+            log.error("enqueue >>> gagal serialize payload {}", segment, e);
+        }
+    }
+
+    public EngineJob claimNext() {
+        var qsg = new QEngineJob("o");
+        var csg = configBuilder.create(em, EngineJob.class).from(EngineJob.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(QUEUED)
+                .orderByAsc(qsg.priority.toString())
+                .orderByAsc(qsg.id.toString())
+                .setMaxResults(1)
+                .getResultList();
+        if (CollectionUtils.isEmpty(csg)) {
+            return null;
+        }
+
+        var job = csg.get(0);
+        job.setStatus(RUNNING);
+        job.setAttempt(job.getAttempt() == null ? 1 : job.getAttempt() + 1);
+        job.setStartDate(LocalDateTime.now());
+        this.em.merge(job);
+        this.em.flush();
+        return job;
+    }
+
+    public void complete(Long id, boolean success, String message) {
+        var job = em.find(EngineJob.class, id);
+        if (job == null) {
+            return;
+        }
+
+        job.setStatus(success ? DONE : FAILED);
+        job.setMessage(message);
+        job.setEndDate(LocalDateTime.now());
+        this.em.merge(job);
+        this.em.flush();
+    }
+
+    public void requeue(Long id, String message) {
+        var job = em.find(EngineJob.class, id);
+        if (job == null) {
+            return;
+        }
+
+        int attempt = job.getAttempt() == null ? 0 : job.getAttempt();
+        job.setStatus(attempt >= maxAttempt ? FAILED : QUEUED);
+        job.setMessage(message);
+        this.em.merge(job);
+        this.em.flush();
+    }
+
+    // job yang masih RUNNING saat engine mati dikembalikan ke antrian
+    public int recoverRunningJobs() {
+        var qsg = new QEngineJob("o");
+        var csg = configBuilder.create(em, EngineJob.class).from(EngineJob.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(RUNNING)
+                .getResultList();
+        for (var job : csg) {
+            job.setStatus(QUEUED);
+            job.setMessage("recovered after restart");
+            this.em.merge(job);
+        }
+        this.em.flush();
+
+        if (!csg.isEmpty()) {
+            log.info("recoverRunningJobs >>> {} job dikembalikan ke antrian", csg.size());
+        }
+        return csg.size();
+    }
+
+    public List<EngineJob> getQueuedJobs() {
+        var qsg = new QEngineJob("o");
+        return configBuilder.create(em, EngineJob.class).from(EngineJob.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).in(List.of(QUEUED, RUNNING))
+                .orderByAsc(qsg.priority.toString())
+                .orderByAsc(qsg.id.toString())
+                .getResultList();
+    }
+
+    @Transactional(readOnly = true)
+    public AppRequestWrapper toWrapper(EngineJob job) {
+        AppRequestPayload payload;
+        try {
+            payload = objectMapper.readValue(job.getPayload(), AppRequestPayload.class);
+        } catch (Exception e) {
+            log.error("toWrapper >>> gagal baca payload job {}", job.getId(), e);
+            return null;
+        }
+
+        var wrapper = new AppRequestWrapper();
+        switch (job.getSegment()) {
+            case SEG_BATCH -> wrapper.setBatch(payload);
+            case SEG_MANUAL -> wrapper.setManual(payload);
+            case SEG_COMBINE -> wrapper.setCombine(payload);
+            case SEG_MANUAL_DOWNLOAD -> wrapper.setManualDownload(payload);
+            case SEG_BATCH_DOWNLOAD -> wrapper.setBatchDownload(payload);
+            default -> {
+                log.error("toWrapper >>> segment tidak dikenal: {}", job.getSegment());
+                return null;
+            }
+        }
+        return wrapper;
+    }
+}
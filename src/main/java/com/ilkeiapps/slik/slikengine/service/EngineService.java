@@ -2,19 +2,26 @@ package com.ilkeiapps.slik.slikengine.service;
 
 import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.ilkeiapps.slik.slikengine.bean.ApiResponse;
+import com.ilkeiapps.slik.slikengine.bean.EngineStatusSnapshot;
 import com.ilkeiapps.slik.slikengine.entity.EngineConfig;
 import com.ilkeiapps.slik.slikengine.entity.EngineStatus;
 import com.ilkeiapps.slik.slikengine.entity.QEngineConfig;
 import com.ilkeiapps.slik.slikengine.entity.QEngineStatus;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 @Slf4j
 @Service
@@ -26,120 +33,153 @@ public class EngineService {
 
     private final CriteriaBuilderFactory configBuilder;
 
-    public String getCurrentStatusEngine() {
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getResultList();
-        if (!CollectionUtils.isEmpty(csg)) {
-            if (csg.get(0).getStatusEngine() == null) {
-                return "NONE";
-            }
+    // state engine di memory jadi sumber utama, DB hanya di-update berkala oleh flushStatus()
+    private final AtomicReference<EngineStatusSnapshot> state = new AtomicReference<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
 
-            return csg.get(0).getStatusEngine();
+    private static final String NONE = "NONE";
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public EngineStatusSnapshot getSnapshot() {
+        var current = state.get();
+        if (current != null) {
+            return current;
         }
 
-        return "NONE";
+        synchronized (state) {
+            current = state.get();
+            if (current == null) {
+                current = loadFromDb();
+                state.set(current);
+            }
+            return current;
+        }
     }
 
-    public void setCurrentStatusEngine(String status) {
-        log.info("Current Status Engine : {}", status);
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getSingleResult();
-        if (csg != null) {
-            csg.setStatusEngine(status);
-            this.em.merge(csg);
-            this.em.flush();
+    private EngineStatusSnapshot loadFromDb() {
+        var csg = findStatusRow();
+        if (csg == null) {
+            log.warn("getSnapshot >>> tidak ada record EngineStatus, mulai dari state kosong");
+            return new EngineStatusSnapshot(null, null, null, null, null);
         }
+
+        return new EngineStatusSnapshot(csg.getId(), csg.getStatusEngine(), csg.getLastUpdateEngine(),
+                csg.getCurrentProcess(), csg.getLastPlaywrigthStatus());
     }
 
-    public String getLastPlaywrigthStatus() {
+    private EngineStatus findStatusRow() {
         var qsg = new QEngineStatus("o");
         var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
                 .getResultList();
-        if (!CollectionUtils.isEmpty(csg)) {
-            if (csg.get(0).getLastPlaywrigthStatus() == null) {
-                return "NONE";
-            }
+        return CollectionUtils.isEmpty(csg) ? null : csg.get(0);
+    }
 
-            return csg.get(0).getLastPlaywrigthStatus();
-        }
+    private void update(UnaryOperator<EngineStatusSnapshot> fn) {
+        getSnapshot();
+        state.updateAndGet(fn);
+        dirty.set(true);
+    }
 
-        return "NONE";
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String getCurrentStatusEngine() {
+        var status = getSnapshot().getStatusEngine();
+        return status == null ? NONE : status;
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void setCurrentStatusEngine(String status) {
+        log.info("Current Status Engine : {}", status);
+        update(s -> s.withStatusEngine(status));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String getLastPlaywrigthStatus() {
+        var status = getSnapshot().getLastPlaywrigthStatus();
+        return status == null ? NONE : status;
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void setLastPlaywrigthStatus(String status) {
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getSingleResult();
-        if (csg != null) {
-            csg.setLastPlaywrigthStatus(status);
-            this.em.merge(csg);
-            this.em.flush();
-        }
+        update(s -> s.withLastPlaywrigthStatus(status));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public LocalDateTime getLastUpdate() {
-        var qsg = new QEngineStatus("o");
-        try {
-            EngineStatus csg = configBuilder.create(em, EngineStatus.class)
-                    .from(EngineStatus.class, qsg.getMetadata().getName())
-                    .getSingleResult();
-
-            return csg.getLastUpdateEngine();
-        } catch (NoResultException e) {
-            log.warn("getLastUpdate >>> tidak ada record EngineStatus, return null");
-            return null;
-        }
+        return getSnapshot().getLastUpdateEngine();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void setLastUpdate(LocalDateTime lastUpdate) {
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getSingleResult();
-        if (csg != null) {
-            csg.setLastUpdateEngine(lastUpdate);
-            this.em.merge(csg);
-            this.em.flush();
-        }
+        update(s -> s.withLastUpdateEngine(lastUpdate));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ApiResponse<EngineStatus> getEngineService() {
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getResultList();
+        var snap = getSnapshot();
+
+        var obj = new EngineStatus();
+        obj.setId(snap.getId());
+        obj.setStatusEngine(snap.getStatusEngine());
+        obj.setLastUpdateEngine(snap.getLastUpdateEngine());
+        obj.setCurrentProcess(snap.getCurrentProcess());
+        obj.setLastPlaywrigthStatus(snap.getLastPlaywrigthStatus());
 
         var wrap = new ApiResponse<EngineStatus>();
         wrap.setStatus(true);
-        wrap.setData(csg);
+        wrap.setData(List.of(obj));
         return wrap;
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void setCurrentProcess(String status) {
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getResultList();
-        if (!CollectionUtils.isEmpty(csg)) {
-            var obj = csg.get(0);
-            obj.setCurrentProcess(status);
-            this.em.merge(obj);
-            this.em.flush();
-        }
+        update(s -> s.withCurrentProcess(status));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public String getCurrentProcess() {
-        var qsg = new QEngineStatus("o");
-        var csg = configBuilder.create(em, EngineStatus.class).from(EngineStatus.class, qsg.getMetadata().getName())
-                .getResultList();
-        if (!CollectionUtils.isEmpty(csg)) {
-            if (csg.get(0).getCurrentProcess() == null) {
-                return "NONE";
+        var process = getSnapshot().getCurrentProcess();
+        return process == null ? NONE : process;
+    }
+
+    // write-behind: beberapa perubahan state digabung jadi satu merge+flush
+    public void flushStatus() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+
+        var snap = getSnapshot();
+        try {
+            var csg = findStatusRow();
+            if (csg == null) {
+                csg = new EngineStatus();
+            }
+
+            csg.setStatusEngine(snap.getStatusEngine());
+            csg.setLastUpdateEngine(snap.getLastUpdateEngine());
+            csg.setCurrentProcess(snap.getCurrentProcess());
+            csg.setLastPlaywrigthStatus(snap.getLastPlaywrigthStatus());
+
+            if (csg.getId() == null) {
+                this.em.persist(csg);
+            } else {
+                this.em.merge(csg);
             }
+            this.em.flush();
 
-            return csg.get(0).getCurrentProcess();
+            Long id = csg.getId();
+            if (snap.getId() == null && id != null) {
+                state.updateAndGet(s -> s.withId(id));
+            }
+        } catch (Exception e) {
+            log.error("flushStatus >>> gagal simpan status engine, retry di flush berikutnya", e);
+            dirty.set(true);
         }
+    }
 
-        return "NONE";
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        log.info("flushStatus >>> flush status engine sebelum shutdown");
+        flushStatus();
     }
 
     public String getRole() {
@@ -0,0 +1,104 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.ActivityServicesBean;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+
+@Slf4j
+@Service
+public class EvidenceEncoderService {
+
+    public static final String IMAGE_PNG = "image/png";
+    public static final String IMAGE_JPEG = "image/jpeg";
+
+    @Value("${cbas.activity.evidence.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${cbas.activity.evidence.full-page:false}")
+    private Boolean fullPage;
+
+    @Value("${cbas.activity.evidence.max-width:1280}")
+    private Integer maxWidth;
+
+    @Value("${cbas.activity.evidence.quality:60}")
+    private Integer quality;
+
+    // docEnd dikosongkan + part endUnchanged kalau identik dengan start; off sampai M2M menerima field tersebut
+    @Value("${cbas.activity.evidence.skip-unchanged-end:false}")
+    private Boolean skipUnchangedEnd;
+
+    public boolean isFullPage() {
+        return Boolean.TRUE.equals(fullPage);
+    }
+
+    // kompres screenshot start/end, end dikosongkan kalau identik dengan start (jika skip-unchanged-end aktif)
+    public void encode(ActivityServicesBean bean) {
+        byte[] start = bean.getPrevStart();
+        byte[] end = bean.getPrevEnd();
+
+        if (Boolean.TRUE.equals(skipUnchangedEnd) && start != null && Arrays.equals(start, end)) {
+            bean.setPrevEnd(null);
+            bean.setEndUnchanged(true);
+        }
+
+        if (!Boolean.TRUE.equals(enabled)) {
+            bean.setEvidenceMediaType(IMAGE_PNG);
+            return;
+        }
+
+        byte[] encodedStart = toJpeg(bean.getPrevStart());
+        byte[] encodedEnd = toJpeg(bean.getPrevEnd());
+        if ((bean.getPrevStart() != null && encodedStart == null) || (bean.getPrevEnd() != null && encodedEnd == null)) {
+            // gagal encode, kirim apa adanya
+            bean.setEvidenceMediaType(IMAGE_PNG);
+            return;
+        }
+
+        bean.setPrevStart(encodedStart);
+        bean.setPrevEnd(encodedEnd);
+        bean.setEvidenceMediaType(IMAGE_JPEG);
+    }
+
+    private byte[] toJpeg(byte[] png) {
+        if (png == null || png.length == 0) {
+            return null;
+        }
+
+        Mat src = Imgcodecs.imdecode(new MatOfByte(png), Imgcodecs.IMREAD_COLOR);
+        Mat resized = new Mat();
+        MatOfByte out = new MatOfByte();
+        try {
+            if (src.empty()) {
+                return null;
+            }
+
+            Mat target = src;
+            if (maxWidth != null && maxWidth > 0 && src.cols() > maxWidth) {
+                double scale = maxWidth / (double) src.cols();
+                Imgproc.resize(src, resized, new Size(maxWidth, Math.round(src.rows() * scale)), 0, 0, Imgproc.INTER_AREA);
+                target = resized;
+            }
+
+            if (!Imgcodecs.imencode(".jpg", target, out, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, quality))) {
+                return null;
+            }
+            return out.toArray();
+        } catch (Exception e) {
+            log.warn("evidenceEncoder >>> gagal encode screenshot: {}", e.getMessage());
+            return null;
+        } finally {
+            src.release();
+            resized.release();
+            out.release();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.google.common.base.Strings;
 import com.ilkeiapps.slik.slikengine.entity.EngineConfig;
 import com.ilkeiapps.slik.slikengine.entity.QEngineConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,26 +13,44 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.CipherInputStream;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @Slf4j
 @Service
@@ -41,19 +61,56 @@ public class ExtractIdebService {
 
     private final CriteriaBuilderFactory configBuilder;
 
+    private final IdebExtractIndexService indexService;
+
+    private final EngineFileStore fileStore;
+
     @Value("${cbas.engine.folder}")
     private String engineFolder;
 
+    // true = isi zip langsung diekstrak ke folder, tanpa menulis file .zip
+    @Value("${cbas.ideb.extract.unzip:false}")
+    private Boolean extractEntries;
+
+    @Value("${cbas.ideb.extract.threads:2}")
+    private Integer threads;
+
+    @Value("${cbas.ideb.extract.config-ttl:300000}")
+    private Long configTtlMillis;
+
+    private ThreadPoolExecutor executor;
+
+    // password IDEB + waktu load, supaya tidak query engine_config setiap file
+    private final AtomicReference<Map.Entry<String, Long>> passwordCache = new AtomicReference<>();
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HEADER_WITH_VERSION = 31;
+    private static final int HEADER_PLAIN = 10;
+    private static final byte[] ZIP_SIGNATURE = {0x50, 0x4B, 0x03, 0x04};
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100),
+                r -> {
+                    Thread t = new Thread(r, "ideb-extract-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
     public void extract() {
-        var qsg = new QEngineConfig("o");
-        EngineConfig csg = configBuilder
-                .create(em, EngineConfig.class)
-                .from(EngineConfig.class, qsg.getMetadata().getName())
-                .where(qsg.code.toString()).eq("IDEB")
-                .getSingleResult();
-
-        if (csg == null || csg.getValue() == null) {
-            log.warn("extract >>> engine config IDEB tidak ditemukan / value null");
+        String password = getPassword();
+        if (password == null) {
             return;
         }
 
@@ -64,31 +121,139 @@ public class ExtractIdebService {
                 return;
             }
 
+            int submitted = 0;
             for (Path fl : files) {
-                processEncryptedFile(fl, csg.getValue());
+                if (submit(fl, password)) {
+                    submitted++;
+                }
             }
-
-        } catch (IOException | NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException |
-                 InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
+            log.info("extract >>> {} dari {} file diproses", submitted, files.size());
+        } catch (IOException e) {
             log.error("extract >>> gagal memproses file IDEB", e);
         }
     }
 
-    private void processEncryptedFile(Path file, String rawPassword) throws IOException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
-        byte[] bytes = Files.readAllBytes(file);
+    // dipanggil dari watcher saat ada file baru
+    public void extract(File file) {
+        if (file == null || !isCandidate(file.toPath())) {
+            return;
+        }
+
+        // hanya file langsung di engineFolder, bukan processed/ atau hasil ekstrak
+        Path parent = file.toPath().toAbsolutePath().normalize().getParent();
+        if (!Paths.get(engineFolder).toAbsolutePath().normalize().equals(parent)) {
+            return;
+        }
+
+        String password = getPassword();
+        if (password != null) {
+            submit(file.toPath(), password);
+        }
+    }
+
+    private String getPassword() {
+        var cached = passwordCache.get();
+        if (cached != null && System.currentTimeMillis() - cached.getValue() < configTtlMillis) {
+            return cached.getKey();
+        }
+
+        try {
+            var qsg = new QEngineConfig("o");
+            var csg = configBuilder
+                    .create(em, EngineConfig.class)
+                    .from(EngineConfig.class, qsg.getMetadata().getName())
+                    .where(qsg.code.toString()).eq("IDEB")
+                    .getResultList();
+
+            if (CollectionUtils.isEmpty(csg) || csg.get(0).getValue() == null) {
+                log.warn("extract >>> engine config IDEB tidak ditemukan / value null");
+                return null;
+            }
+
+            String value = csg.get(0).getValue();
+            passwordCache.set(Map.entry(value, System.currentTimeMillis()));
+            return value;
+        } catch (Exception e) {
+            log.error("extract >>> gagal baca engine config IDEB", e);
+            return cached == null ? null : cached.getKey();
+        }
+    }
+
+    private boolean submit(Path file, String password) {
+        String key = file.toAbsolutePath().normalize().toString();
+        if (!inProgress.add(key)) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    extractIfChanged(file, key, password);
+                } finally {
+                    inProgress.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(key);
+            log.warn("extract >>> executor sudah berhenti, skip {}", file);
+            return false;
+        }
+    }
+
+    // index (path, size, mtime): file yang sudah pernah diekstrak tidak didekripsi ulang. hash hanya dicatat, tidak
+    // dipakai untuk skip: isi yang sama di path lain (mis. download ulang) tetap harus menghasilkan <nama>.zip sendiri
+    private void extractIfChanged(Path file, String key, String password) {
+        long size;
+        long mtime;
+        String hash = null;
+        try {
+            size = Files.size(file);
+            mtime = Files.getLastModifiedTime(file).toMillis();
+
+            var idx = indexService.findByPath(key);
+            if (idx != null && IdebExtractIndexService.DONE.equals(idx.getStatus())
+                    && Long.valueOf(size).equals(idx.getSize()) && Long.valueOf(mtime).equals(idx.getMtime())) {
+                return;
+            }
+
+            hash = fileStore.hash(file);
+        } catch (NoSuchFileException e) {
+            // file sudah dipindah ke processed oleh pipeline upload
+            return;
+        } catch (Exception e) {
+            log.error("extract >>> gagal baca file {}", file, e);
+            return;
+        }
+
+        try {
+            processEncryptedFile(file, password);
+            indexService.record(key, size, mtime, hash, IdebExtractIndexService.DONE, null);
+        } catch (Exception e) {
+            log.error("extract >>> gagal memproses file IDEB {}", file, e);
+            indexService.record(key, size, mtime, hash, IdebExtractIndexService.FAILED, e.getMessage());
+        }
+    }
 
+    private void processEncryptedFile(Path file, String rawPassword) throws IOException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
         String pwd = Strings.padEnd(rawPassword, 16, 'z');
         byte[] keyBytes = pwd.getBytes(StandardCharsets.UTF_8);
 
         Cipher cipher = createAesDecryptCipher(keyBytes);
 
-        byte[] decrypted = cipher.doFinal(bytes);
-        byte[] zipBytes = stripHeaderAndFixZipSignature(decrypted);
-
-        Path zipPath = buildZipPath(file);
-        Files.write(zipPath, zipBytes);
-
-        log.info("extract >>> file {} diekstrak ke {}", file, zipPath);
+        // decrypt sambil dibaca, tidak ada salinan seluruh file di heap
+        try (InputStream decrypted = new CipherInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), cipher);
+             InputStream zipStream = stripHeaderAndFixZipSignature(decrypted)) {
+            if (Boolean.TRUE.equals(extractEntries)) {
+                Path targetDir = buildExtractPath(file);
+                int count = unzipTo(zipStream, targetDir);
+                log.info("extract >>> file {} diekstrak ke {} ({} entry)", file, targetDir, count);
+            } else {
+                Path zipPath = buildZipPath(file);
+                writeAtomically(zipStream, zipPath);
+                log.info("extract >>> file {} diekstrak ke {}", file, zipPath);
+            }
+        }
     }
 
     private Cipher createAesDecryptCipher(byte[] keyBytes) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException {
@@ -100,22 +265,66 @@ public class ExtractIdebService {
         return cipher;
     }
 
-    private byte[] stripHeaderAndFixZipSignature(byte[] decrypted) {
-        String header = new String(decrypted, StandardCharsets.UTF_8);
+    // header "minVer=" panjang 31 byte, selain itu 10 byte header dan 4 byte pertama diganti signature ZIP
+    private InputStream stripHeaderAndFixZipSignature(InputStream decrypted) throws IOException {
+        byte[] head = decrypted.readNBytes(HEADER_WITH_VERSION);
+        String header = new String(head, StandardCharsets.UTF_8);
 
-        byte[] payload;
         if (header.contains("minVer=")) {
-            payload = Arrays.copyOfRange(decrypted, 31, decrypted.length);
-        } else {
-            payload = Arrays.copyOfRange(decrypted, 10, decrypted.length);
+            return decrypted;
+        }
+
+        if (head.length < HEADER_PLAIN + ZIP_SIGNATURE.length) {
+            throw new IOException("file terlalu pendek untuk header iDeb");
+        }
+
+        byte[] rest = Arrays.copyOfRange(head, HEADER_PLAIN, head.length);
+        System.arraycopy(ZIP_SIGNATURE, 0, rest, 0, ZIP_SIGNATURE.length);
+        return new SequenceInputStream(new ByteArrayInputStream(rest), decrypted);
+    }
+
+    private void writeAtomically(InputStream in, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".part");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private int unzipTo(InputStream in, Path targetDir) throws IOException {
+        Files.createDirectories(targetDir);
+        Path root = targetDir.toAbsolutePath().normalize();
 
-            payload[0] = 0x50;
-            payload[1] = 0x4B;
-            payload[2] = 0x03;
-            payload[3] = 0x04;
+        int count = 0;
+        try (ZipInputStream zis = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                Path dest = root.resolve(entry.getName()).normalize();
+                if (!dest.startsWith(root)) {
+                    log.warn("extract >>> entry {} di luar folder tujuan, skip", entry.getName());
+                    continue;
+                }
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(dest);
+                } else {
+                    Files.createDirectories(dest.getParent());
+                    writeAtomically(zis, dest);
+                    count++;
+                }
+            }
         }
+        return count;
+    }
 
-        return payload;
+    private Path buildExtractPath(Path encryptedFile) {
+        String fileName = encryptedFile.getFileName().toString();
+        int dotIdx = fileName.lastIndexOf('.');
+        String baseName = (dotIdx > 0) ? fileName.substring(0, dotIdx) : fileName;
+        return encryptedFile.resolveSibling(baseName);
     }
 
     private Path buildZipPath(Path encryptedFile) {
@@ -133,7 +342,17 @@ public class ExtractIdebService {
 
     private List<Path> listFile() throws IOException {
         try (Stream<Path> stream = Files.list(Paths.get(engineFolder))) {
-            return new ArrayList<>(stream.filter(file -> !Files.isDirectory(file)).toList());
+            return new ArrayList<>(stream.filter(this::isCandidate).toList());
         }
     }
+
+    // hasil ekstrak (.zip) dan file sementara (.part) bukan input
+    private boolean isCandidate(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+
+        String name = file.getFileName().toString().toLowerCase();
+        return !name.endsWith(".zip") && !name.endsWith(".part");
+    }
 }
@@ -0,0 +1,56 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.ilkeiapps.slik.slikengine.entity.IdebExtractIndex;
+import com.ilkeiapps.slik.slikengine.entity.QIdebExtractIndex;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class IdebExtractIndexService {
+
+    private final EntityManager em;
+
+    private final CriteriaBuilderFactory configBuilder;
+
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Transactional(readOnly = true)
+    public IdebExtractIndex findByPath(String path) {
+        var qsg = new QIdebExtractIndex("o");
+        var csg = configBuilder.create(em, IdebExtractIndex.class).from(IdebExtractIndex.class, qsg.getMetadata().getName())
+                .where(qsg.path.toString()).eq(path)
+                .getResultList();
+        return CollectionUtils.isEmpty(csg) ? null : csg.get(0);
+    }
+
+    public void record(String path, long size, long mtime, String hash, String status, String message) {
+        var idx = findByPath(path);
+        if (idx == null) {
+            idx = new IdebExtractIndex();
+            idx.setPath(path);
+        }
+
+        idx.setSize(size);
+        idx.setMtime(mtime);
+        idx.setHash(hash);
+        idx.setStatus(status);
+        idx.setMessage(message);
+        idx.setExtractDate(LocalDateTime.now());
+        if (idx.getId() == null) {
+            this.em.persist(idx);
+        } else {
+            this.em.merge(idx);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.ilkeiapps.slik.slikengine.bean.DownloadBean;
+import com.ilkeiapps.slik.slikengine.entity.IdebOutbox;
+import com.ilkeiapps.slik.slikengine.entity.QIdebOutbox;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class IdebOutboxService {
+
+    private final EntityManager em;
+
+    private final CriteriaBuilderFactory configBuilder;
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    public static final String TARGET_M2M = "m2m";
+    public static final String TARGET_IMAGE = "image";
+
+    @Value("${cbas.ideb.upload.max-attempt:8}")
+    private Integer maxAttempt;
+
+    @Value("${cbas.ideb.upload.backoff-millis:5000}")
+    private Long backoffMillis;
+
+    @Value("${cbas.ideb.upload.backoff-max-millis:300000}")
+    private Long backoffMaxMillis;
+
+    // satu baris per noRefCounter, kirim ulang tidak mengulang langkah yang sudah sukses
+    public Long enqueue(DownloadBean src, String target, boolean notifyM2m) {
+        String key = idempotencyKey(src);
+        var existing = findByKey(key);
+
+        if (existing == null) {
+            var ob = new IdebOutbox();
+            ob.setIdempotencyKey(key);
+            ob.setAppId(src.getId());
+            ob.setNoRefCounter(src.getNoRefCounter());
+            ob.setFileName(src.getFile());
+            ob.setUploadTarget(target);
+            ob.setNotifyM2m(notifyM2m);
+            ob.setUploaded(false);
+            ob.setDoneReported(false);
+            ob.setCallbackSent(false);
+            ob.setStatus(QUEUED);
+            ob.setAttempt(0);
+            ob.setNextAttempt(LocalDateTime.now());
+            ob.setCreateDate(LocalDateTime.now());
+            this.em.persist(ob);
+            this.em.flush();
+            return ob.getId();
+        }
+
+        if (RUNNING.equals(existing.getStatus())) {
+            log.warn("idebOutbox >>> {} masih diproses, file {} diabaikan", key, src.getFile());
+            return null;
+        }
+
+        // file baru untuk noRef yang sama: upload ulang, notifikasi M2M yang sudah terkirim tidak diulang
+        existing.setFileName(src.getFile());
+        existing.setProcessedPath(null);
+        existing.setAppId(src.getId());
+        existing.setUploadTarget(target);
+        existing.setNotifyM2m(Boolean.TRUE.equals(existing.getNotifyM2m()) || notifyM2m);
+        existing.setUploaded(false);
+        existing.setStatus(QUEUED);
+        existing.setAttempt(0);
+        existing.setMessage(null);
+        existing.setNextAttempt(LocalDateTime.now());
+        existing.setEndDate(null);
+        this.em.merge(existing);
+        this.em.flush();
+        log.info("idebOutbox >>> {} sudah ada di outbox, diantrikan ulang", key);
+        return existing.getId();
+    }
+
+    private String idempotencyKey(DownloadBean src) {
+        if (StringUtils.isNotBlank(src.getNoRefCounter())) {
+            return src.getNoRefCounter();
+        }
+        return "app-" + src.getId() + "-" + src.getFile();
+    }
+
+    private IdebOutbox findByKey(String key) {
+        var qsg = new QIdebOutbox("o");
+        var csg = configBuilder.create(em, IdebOutbox.class).from(IdebOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.idempotencyKey.toString()).eq(key)
+                .getResultList();
+        return CollectionUtils.isEmpty(csg) ? null : csg.get(0);
+    }
+
+    public List<Long> findDue(int limit) {
+        var qsg = new QIdebOutbox("o");
+        return configBuilder.create(em, IdebOutbox.class).from(IdebOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(QUEUED)
+                .where(qsg.nextAttempt.toString()).le(LocalDateTime.now())
+                .orderByAsc(qsg.nextAttempt.toString())
+                .orderByAsc(qsg.id.toString())
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(IdebOutbox::getId)
+                .toList();
+    }
+
+    public IdebOutbox start(Long id) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob == null || !QUEUED.equals(ob.getStatus())) {
+            return null;
+        }
+
+        ob.setStatus(RUNNING);
+        ob.setAttempt(ob.getAttempt() == null ? 1 : ob.getAttempt() + 1);
+        this.em.merge(ob);
+        this.em.flush();
+        em.detach(ob);
+        return ob;
+    }
+
+    public void markUploaded(Long id) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob != null) {
+            ob.setUploaded(true);
+        }
+    }
+
+    public void markDoneReported(Long id) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob != null) {
+            ob.setDoneReported(true);
+        }
+    }
+
+    public void markCallbackSent(Long id) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob != null) {
+            ob.setCallbackSent(true);
+        }
+    }
+
+    public void markProcessed(Long id, String processedPath) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob != null) {
+            ob.setProcessedPath(processedPath);
+        }
+    }
+
+    public void complete(Long id, boolean success, String message) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob == null) {
+            return;
+        }
+
+        ob.setStatus(success ? DONE : FAILED);
+        ob.setMessage(message);
+        ob.setEndDate(LocalDateTime.now());
+        this.em.merge(ob);
+    }
+
+    // backoff eksponensial: base * 2^(attempt-1), dibatasi backoffMaxMillis. false = sudah FAILED (tidak di-retry lagi)
+    public boolean retry(Long id, String message) {
+        var ob = em.find(IdebOutbox.class, id);
+        if (ob == null) {
+            return true;
+        }
+
+        int attempt = ob.getAttempt() == null ? 1 : ob.getAttempt();
+        if (attempt >= maxAttempt) {
+            ob.setStatus(FAILED);
+            ob.setEndDate(LocalDateTime.now());
+            log.error("idebOutbox >>> {} gagal setelah {} percobaan: {}", ob.getIdempotencyKey(), attempt, message);
+        } else {
+            long delay = Math.min(backoffMaxMillis, backoffMillis << Math.min(attempt - 1, 20));
+            ob.setStatus(QUEUED);
+            ob.setNextAttempt(LocalDateTime.now().plusNanos(delay * 1_000_000L));
+            log.warn("idebOutbox >>> {} percobaan {} gagal, retry dalam {} ms: {}", ob.getIdempotencyKey(), attempt, delay, message);
+        }
+        ob.setMessage(message);
+        this.em.merge(ob);
+        return !FAILED.equals(ob.getStatus());
+    }
+
+    // baris yang masih RUNNING saat engine mati dikembalikan ke antrian
+    public int recoverRunning() {
+        var qsg = new QIdebOutbox("o");
+        var csg = configBuilder.create(em, IdebOutbox.class).from(IdebOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(RUNNING)
+                .getResultList();
+        for (var ob : csg) {
+            ob.setStatus(QUEUED);
+            ob.setNextAttempt(LocalDateTime.now());
+            ob.setMessage("recovered after restart");
+            this.em.merge(ob);
+        }
+        this.em.flush();
+
+        if (!csg.isEmpty()) {
+            log.info("idebOutbox >>> {} upload dikembalikan ke antrian", csg.size());
+        }
+        return csg.size();
+    }
+}
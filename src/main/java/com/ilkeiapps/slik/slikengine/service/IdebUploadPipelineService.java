@@ -0,0 +1,284 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.DownloadBean;
+import com.ilkeiapps.slik.slikengine.bean.ProcessReportRequest;
+import com.ilkeiapps.slik.slikengine.bean.SubmitRequest;
+import com.ilkeiapps.slik.slikengine.entity.IdebOutbox;
+import com.ilkeiapps.slik.slikengine.retrofit.IM2M;
+import com.ilkeiapps.slik.slikengine.retrofit.IM2MImage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdebUploadPipelineService {
+
+    private final IdebOutboxService outboxService;
+    private final IM2M m2mService;
+    private final IM2MImage m2mImageService;
+    private final EngineFileStore fileStore;
+
+    @Value("${cbas.engine.name}")
+    private String robotName;
+
+    @Value("${cbas.ideb.upload.threads:2}")
+    private Integer threads;
+
+    @Value("${cbas.ideb.upload.queue:500}")
+    private Integer queueCapacity;
+
+    private static final String TEXT_PLAIN = "text/plain";
+    private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+
+    private ThreadPoolExecutor executor;
+
+    // id outbox yang sedang antri / jalan di executor, supaya scheduler tidak dispatch dua kali
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "ideb-upload-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // dipanggil dari thread browser: hanya simpan ke outbox lalu langsung kembali
+    public void submit(List<DownloadBean> downloads, String target, boolean notifyM2m) {
+        for (DownloadBean ap : downloads) {
+            try {
+                Long id = outboxService.enqueue(ap, target, notifyM2m);
+                if (id != null) {
+                    dispatch(id);
+                }
+            } catch (Exception e) {
+                log.error("idebUpload >>> gagal simpan outbox untuk {}", ap.getNoRefCounter(), e);
+            }
+        }
+    }
+
+    // dipanggil scheduler: retry yang sudah jatuh tempo dan sisa outbox setelah restart
+    public void dispatchDue() {
+        int room = executor.getQueue().remainingCapacity();
+        if (room <= 0) {
+            return;
+        }
+
+        for (Long id : outboxService.findDue(room)) {
+            dispatch(id);
+        }
+    }
+
+    public int getPendingCount() {
+        return inFlight.size();
+    }
+
+    private void dispatch(Long id) {
+        if (!inFlight.add(id)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    process(id);
+                } finally {
+                    inFlight.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // tetap QUEUED di outbox, diambil lagi oleh scheduler
+            inFlight.remove(id);
+            log.warn("idebUpload >>> antrian upload penuh, outbox {} menunggu scheduler", id);
+        }
+    }
+
+    private void process(Long id) {
+        IdebOutbox ob;
+        try {
+            ob = outboxService.start(id);
+        } catch (Exception e) {
+            log.error("idebUpload >>> gagal ambil outbox {}", id, e);
+            return;
+        }
+        if (ob == null) {
+            return;
+        }
+
+        try {
+            Path sourcePath = resolveSource(ob);
+            if (sourcePath == null && isDelivered(ob)) {
+                // semua langkah sudah sukses, engine mati setelah file dipindah tapi sebelum path-nya tercatat
+                log.info("idebUpload >>> {} sudah terkirim, file {} sudah dipindah", ob.getNoRefCounter(), ob.getFileName());
+                outboxService.complete(id, true, "file already moved");
+                return;
+            }
+            if (sourcePath == null) {
+                log.warn("idebUpload >>> file {} untuk {} tidak ditemukan", ob.getFileName(), ob.getNoRefCounter());
+                outboxService.complete(id, false, "file not found");
+                reportTerminalFailure(ob);
+                return;
+            }
+
+            if (!Boolean.TRUE.equals(ob.getUploaded())) {
+                uploadIdeb(ob, sourcePath);
+                outboxService.markUploaded(id);
+            }
+
+            // === HANYA UNTUK FLOW NORMAL (DATA FOUND) ===
+            if (Boolean.TRUE.equals(ob.getNotifyM2m())) {
+                if (!Boolean.TRUE.equals(ob.getDoneReported())) {
+                    reportDownloadDone(ob);
+                    outboxService.markDoneReported(id);
+                    ob.setDoneReported(true);
+                }
+                if (!Boolean.TRUE.equals(ob.getCallbackSent())) {
+                    submitDownloadCallback(ob);
+                    outboxService.markCallbackSent(id);
+                    ob.setCallbackSent(true);
+                }
+            }
+
+            Path processedPath = moveFileToProcessed(sourcePath);
+            if (processedPath != null) {
+                outboxService.markProcessed(id, processedPath.toString());
+            }
+            outboxService.complete(id, true, null);
+            log.info("idebUpload >>> selesai upload {} file {}", ob.getNoRefCounter(), ob.getFileName());
+        } catch (Exception e) {
+            if (!outboxService.retry(id, e.getMessage())) {
+                reportTerminalFailure(ob);
+            }
+        }
+    }
+
+    private Path resolveSource(IdebOutbox ob) {
+        Path sourcePath = fileStore.resolve(ob.getFileName());
+        if (Files.exists(sourcePath)) {
+            return sourcePath;
+        }
+
+        // engine mati setelah file dipindah tapi sebelum outbox ditandai selesai;
+        // path hasil moveToProcessed dipakai dulu karena namanya bisa berubah (dedupe / suffix hash)
+        if (ob.getProcessedPath() != null) {
+            Path processed = Path.of(ob.getProcessedPath());
+            if (Files.exists(processed)) {
+                return processed;
+            }
+        }
+        return fileStore.findProcessed(ob.getFileName());
+    }
+
+    private boolean isDelivered(IdebOutbox ob) {
+        return Boolean.TRUE.equals(ob.getUploaded())
+                && (!Boolean.TRUE.equals(ob.getNotifyM2m())
+                || (Boolean.TRUE.equals(ob.getDoneReported()) && Boolean.TRUE.equals(ob.getCallbackSent())));
+    }
+
+    private void uploadIdeb(IdebOutbox ob, Path sourcePath) throws IOException {
+        log.info("idebUpload >>> upload file: {} for data: {}", sourcePath, ob.getNoRefCounter());
+
+        RequestBody code = RequestBody.create(robotName, MediaType.parse(TEXT_PLAIN));
+        RequestBody reffId = RequestBody.create(ob.getNoRefCounter(), MediaType.parse(TEXT_PLAIN));
+        RequestBody fileStart = RequestBody.create(sourcePath.toFile(), MediaType.parse(APPLICATION_OCTET_STREAM));
+
+        MultipartBody.Part bodyStart = MultipartBody.Part.createFormData("file", ob.getNoRefCounter() + ".ideb", fileStart);
+
+        var call = IdebOutboxService.TARGET_IMAGE.equals(ob.getUploadTarget())
+                ? m2mImageService.uploadIdeb(code, reffId, bodyStart)
+                : m2mService.uploadIdeb(code, reffId, bodyStart);
+        retrofit2.Response<?> resp = call.execute();
+        if (!resp.isSuccessful()) {
+            throw new IOException("uploadIdeb http " + resp.code());
+        }
+    }
+
+    private void reportDownloadDone(IdebOutbox ob) throws IOException {
+        ProcessReportRequest pr = new ProcessReportRequest();
+        pr.setStatusCode(ob.getNoRefCounter());
+
+        retrofit2.Response<?> resp = m2mService.downloadDone(pr).execute();
+        if (!resp.isSuccessful()) {
+            throw new IOException("downloadDone http " + resp.code());
+        }
+    }
+
+    // outbox menyerah (upload gagal terus / file hilang): core tetap diberi status, supaya item tidak menggantung.
+    // download/fail + callback FIN, sama seperti alur lama yang selalu mengirim callback walaupun upload gagal
+    private void reportTerminalFailure(IdebOutbox ob) {
+        if (!Boolean.TRUE.equals(ob.getNotifyM2m()) || Boolean.TRUE.equals(ob.getDoneReported())) {
+            return;
+        }
+
+        try {
+            ProcessReportRequest pr = new ProcessReportRequest();
+            pr.setStatusCode(ob.getNoRefCounter());
+            retrofit2.Response<?> resp = m2mService.extractFail(pr).execute();
+            if (!resp.isSuccessful()) {
+                log.error("idebUpload >>> download/fail gagal untuk {} dengan http {}", ob.getNoRefCounter(), resp.code());
+            }
+
+            if (!Boolean.TRUE.equals(ob.getCallbackSent())) {
+                submitDownloadCallback(ob);
+                outboxService.markCallbackSent(ob.getId());
+            }
+            log.warn("idebUpload >>> {} gagal permanen, core sudah diberi status gagal", ob.getNoRefCounter());
+        } catch (Exception e) {
+            log.error("idebUpload >>> gagal lapor kegagalan {} ke core, perlu ditangani manual", ob.getNoRefCounter(), e);
+        }
+    }
+
+    private void submitDownloadCallback(IdebOutbox ob) throws IOException {
+        SubmitRequest sr = new SubmitRequest();
+        sr.setIdAppRequest(ob.getAppId());
+        sr.setApprovalVariable("FIN");
+
+        retrofit2.Response<?> resp = m2mService.processCallback(sr).execute();
+        if (!resp.isSuccessful()) {
+            throw new IOException("processCallback http " + resp.code());
+        }
+    }
+
+    private Path moveFileToProcessed(Path sourcePath) {
+        if (sourcePath.startsWith(fileStore.getProcessedRoot())) {
+            return sourcePath;
+        }
+
+        try {
+            return fileStore.moveToProcessed(sourcePath);
+        } catch (IOException e) {
+            log.error("idebUpload >>> fail to move file: {} to processed with error: {}", sourcePath, e.getMessage(), e);
+            return null;
+        }
+    }
+}
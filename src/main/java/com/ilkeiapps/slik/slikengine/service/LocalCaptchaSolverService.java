@@ -0,0 +1,241 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.CaptchaSolveResult;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class LocalCaptchaSolverService {
+
+    private static final String GLYPH_PATTERN = "classpath*:static/*.jpg";
+    private static final int GLYPH_HEIGHT = 40;
+    private static final int MIN_SEGMENT_WIDTH = 3;
+    private static final int MIN_SEGMENT_PIXELS = 20;
+
+    // jawaban lokal baru dipakai setelah threshold dikalibrasi dari log shadow
+    @Value("${cbas.captcha.local.enabled:false}")
+    private Boolean enabled;
+
+    // shadow: solver lokal tetap jalan & dibandingkan dengan OCR remote, hasilnya tidak dipakai
+    @Value("${cbas.captcha.local.shadow:true}")
+    private Boolean shadow;
+
+    // jumlah karakter captcha, 0 = tidak dicek
+    @Value("${cbas.captcha.local.length:0}")
+    private Integer expectedLength;
+
+    private final List<Glyph> glyphs = new ArrayList<>();
+
+    private static final class Glyph {
+        private final String label;
+        private final Mat image;
+
+        private Glyph(String label, Mat image) {
+            this.label = label;
+            this.image = image;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            var resolver = new PathMatchingResourcePatternResolver();
+            for (Resource res : resolver.getResources(GLYPH_PATTERN)) {
+                String label = labelOf(res.getFilename());
+                if (label == null) {
+                    continue;
+                }
+
+                try (InputStream is = res.getInputStream()) {
+                    Mat gray = Imgcodecs.imdecode(new MatOfByte(is.readAllBytes()), Imgcodecs.IMREAD_GRAYSCALE);
+                    Mat bin = binarize(gray);
+                    gray.release();
+
+                    Mat crop = cropToContent(bin);
+                    bin.release();
+                    if (crop != null) {
+                        glyphs.add(new Glyph(label, normalizeHeight(crop)));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("localCaptcha >>> gagal load glyph", e);
+        }
+        log.info("localCaptcha >>> {} glyph loaded", glyphs.size());
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled) && !glyphs.isEmpty();
+    }
+
+    public boolean isActive() {
+        return (Boolean.TRUE.equals(enabled) || Boolean.TRUE.equals(shadow)) && !glyphs.isEmpty();
+    }
+
+    // c3_8.jpg -> "8", a.jpg -> "a"
+    private String labelOf(String filename) {
+        if (filename == null) {
+            return null;
+        }
+
+        String base = filename.substring(0, filename.lastIndexOf('.'));
+        int idx = base.indexOf('_');
+        String label = idx >= 0 ? base.substring(idx + 1) : base;
+        return label.length() == 1 ? label : null;
+    }
+
+    public CaptchaSolveResult solve(byte[] image) {
+        if (!isActive() || image == null || image.length == 0) {
+            return null;
+        }
+
+        Mat gray = Imgcodecs.imdecode(new MatOfByte(image), Imgcodecs.IMREAD_GRAYSCALE);
+        if (gray.empty()) {
+            gray.release();
+            return null;
+        }
+
+        Mat bin = binarize(gray);
+        gray.release();
+        try {
+            List<Rect> segments = segment(bin);
+            if (segments.isEmpty() || (expectedLength != null && expectedLength > 0 && segments.size() != expectedLength)) {
+                log.debug("localCaptcha >>> jumlah segmen {} tidak sesuai", segments.size());
+                return new CaptchaSolveResult(null, 0d);
+            }
+
+            StringBuilder text = new StringBuilder();
+            double confidence = 1d;
+            for (Rect r : segments) {
+                Mat region = bin.submat(r);
+                Mat crop = cropToContent(region);
+                region.release();
+                if (crop == null) {
+                    return new CaptchaSolveResult(null, 0d);
+                }
+
+                Mat candidate = normalizeHeight(crop);
+                String bestLabel = null;
+                double bestScore = -1d;
+                for (Glyph g : glyphs) {
+                    double score = compare(candidate, g.image);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestLabel = g.label;
+                    }
+                }
+                candidate.release();
+
+                text.append(bestLabel);
+                confidence = Math.min(confidence, Math.max(0d, bestScore));
+            }
+
+            return new CaptchaSolveResult(text.toString(), confidence);
+        } catch (Exception e) {
+            log.warn("localCaptcha >>> gagal solve: {}", e.getMessage());
+            return null;
+        } finally {
+            bin.release();
+        }
+    }
+
+    // hasil: teks putih (255) di atas latar hitam, apapun warna latar aslinya
+    private Mat binarize(Mat gray) {
+        Mat bin = new Mat();
+        Imgproc.threshold(gray, bin, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+        if (Core.countNonZero(bin) > bin.total() / 2) {
+            Core.bitwise_not(bin, bin);
+        }
+        return bin;
+    }
+
+    // potong per karakter berdasarkan kolom kosong (proyeksi vertikal)
+    private List<Rect> segment(Mat bin) {
+        Mat colSum = new Mat();
+        Core.reduce(bin, colSum, 0, Core.REDUCE_SUM, CvType.CV_32S);
+
+        int[] cols = new int[bin.cols()];
+        colSum.get(0, 0, cols);
+        colSum.release();
+
+        List<Rect> segments = new ArrayList<>();
+        int start = -1;
+        for (int x = 0; x <= cols.length; x++) {
+            boolean ink = x < cols.length && cols[x] > 0;
+            if (ink && start < 0) {
+                start = x;
+            } else if (!ink && start >= 0) {
+                if (x - start >= MIN_SEGMENT_WIDTH) {
+                    Rect r = new Rect(start, 0, x - start, bin.rows());
+                    Mat region = bin.submat(r);
+                    if (Core.countNonZero(region) >= MIN_SEGMENT_PIXELS) {
+                        segments.add(r);
+                    }
+                    region.release();
+                }
+                start = -1;
+            }
+        }
+        return segments;
+    }
+
+    private Mat cropToContent(Mat bin) {
+        Mat points = new Mat();
+        Core.findNonZero(bin, points);
+        if (points.empty()) {
+            points.release();
+            return null;
+        }
+
+        Rect box = Imgproc.boundingRect(points);
+        points.release();
+
+        Mat region = bin.submat(box);
+        Mat crop = region.clone();
+        region.release();
+        return crop;
+    }
+
+    private Mat normalizeHeight(Mat src) {
+        int width = Math.max(1, (int) Math.round(src.cols() * (GLYPH_HEIGHT / (double) src.rows())));
+        Mat dst = new Mat();
+        Imgproc.resize(src, dst, new Size(width, GLYPH_HEIGHT), 0, 0, Imgproc.INTER_AREA);
+        src.release();
+        return dst;
+    }
+
+    private double compare(Mat candidate, Mat glyph) {
+        Mat resized = new Mat();
+        Mat result = new Mat();
+        try {
+            Imgproc.resize(candidate, resized, glyph.size(), 0, 0, Imgproc.INTER_AREA);
+            Imgproc.matchTemplate(resized, glyph, result, Imgproc.TM_CCOEFF_NORMED);
+            double score = Core.minMaxLoc(result).maxVal;
+            if (Double.isNaN(score)) {
+                return 0d;
+            }
+
+            // penalti kalau rasio lebar sangat berbeda (mis. "m" vs "r")
+            double ratio = candidate.cols() / (double) glyph.cols();
+            if (ratio > 1d) {
+                ratio = 1d / ratio;
+            }
+            return score * (0.5d + 0.5d * ratio);
+        } finally {
+            resized.release();
+            result.release();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.ProcessReportBulkRequest;
+import com.ilkeiapps.slik.slikengine.bean.ProcessReportRequest;
+import com.ilkeiapps.slik.slikengine.bean.SubmitRequest;
+import com.ilkeiapps.slik.slikengine.bean.SubmitRequestBulk;
+import com.ilkeiapps.slik.slikengine.entity.M2mOutbox;
+import com.ilkeiapps.slik.slikengine.retrofit.IM2M;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class M2mAsyncService {
+
+    private final IM2M m2mService;
+
+    private final M2mOutboxService outboxService;
+
+    @Value("${cbas.m2m.coalesce.window-millis:300}")
+    private Long windowMillis;
+
+    @Value("${cbas.m2m.coalesce.max-batch:50}")
+    private Integer maxBatch;
+
+    // batas tunggu chain yang masih jalan saat shutdown; sisanya tetap di outbox dan dikirim ulang setelah restart
+    @Value("${cbas.m2m.drain-millis:10000}")
+    private Long drainMillis;
+
+    // ekor antrian per noRef: panggilan berikutnya untuk noRef yang sama menunggu yang sebelumnya
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<PendingDone> pending = new ConcurrentLinkedQueue<>();
+
+    // id outbox yang sedang di window / chain, supaya scheduler tidak dispatch dua kali
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService flusher;
+
+    private record PendingDone(Long outboxId, String noRef, Long idAppDistribute, Long idAppRequest, String approvalVariable,
+                               boolean doneReported, boolean callbackSent, CompletableFuture<Void> future) {
+
+        PendingDone withDoneReported() {
+            return new PendingDone(outboxId, noRef, idAppDistribute, idAppRequest, approvalVariable, true, callbackSent, future);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "m2m-coalesce");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+
+        // kosongkan window & tunggu chain per noRef selesai sebelum bean lain ditutup
+        long deadline = System.currentTimeMillis() + drainMillis;
+        while (true) {
+            flushSafely();
+            if (tails.isEmpty() && pending.isEmpty()) {
+                return;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("m2mAsync >>> shutdown dengan {} chain belum selesai, done/callback dikirim ulang dari outbox setelah restart", tails.size());
+    }
+
+    // Call retrofit -> future, dijalankan di dispatcher OkHttp bukan di thread browser
+    public <T> CompletableFuture<Response<T>> toFuture(Call<T> call) {
+        CompletableFuture<Response<T>> future = new CompletableFuture<>();
+        call.enqueue(new Callback<>() {
+            @Override
+            public void onResponse(Call<T> c, Response<T> response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Call<T> c, Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public CompletableFuture<Void> send(String noRef, String label, Supplier<Call<?>> call) {
+        return chain(noRef, () -> toFuture(call.get()).thenAccept(res -> {
+            if (!res.isSuccessful()) {
+                log.error("m2mAsync >>> {} {} gagal dengan http {}", label, noRef, res.code());
+            }
+        }).exceptionally(e -> {
+            log.error("m2mAsync >>> {} {} error: {}", label, noRef, e.getMessage());
+            return null;
+        }));
+    }
+
+    // processDone + processCallback, disimpan ke outbox dulu lalu digabung ke endpoint bulk dalam satu window
+    public CompletableFuture<Void> doneAndCallback(String noRef, ProcessReportRequest pp, SubmitRequest sr) {
+        Long id;
+        try {
+            id = outboxService.enqueue(noRef, pp.getIdAppDistribute(), sr.getIdAppRequest(), sr.getApprovalVariable());
+            if (id == null || !inFlight.add(id)) {
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (Exception e) {
+            // DB bermasalah: tetap kirim, tapi tanpa jaminan retry
+            log.error("m2mAsync >>> gagal simpan outbox untuk {}, kirim tanpa outbox", noRef, e);
+            id = null;
+        }
+
+        Long outboxId = id;
+        return chain(noRef, () -> {
+            if (outboxId != null && !startSafely(outboxId)) {
+                inFlight.remove(outboxId);
+                return CompletableFuture.completedFuture(null);
+            }
+            var item = new PendingDone(outboxId, noRef, pp.getIdAppDistribute(), sr.getIdAppRequest(), sr.getApprovalVariable(),
+                    false, false, new CompletableFuture<>());
+            pending.add(item);
+            return item.future();
+        });
+    }
+
+    // retry dari outbox (gagal sebelumnya / tertinggal saat restart), dikirim per data tanpa coalescing
+    public void dispatchDue() {
+        for (Long id : outboxService.findDue(maxBatch)) {
+            if (!inFlight.add(id)) {
+                continue;
+            }
+
+            M2mOutbox ob;
+            try {
+                ob = outboxService.start(id);
+            } catch (Exception e) {
+                log.error("m2mAsync >>> gagal ambil outbox {}", id, e);
+                ob = null;
+            }
+            if (ob == null) {
+                inFlight.remove(id);
+                continue;
+            }
+
+            var item = new PendingDone(id, ob.getNoRefCounter(), ob.getIdAppDistribute(), ob.getIdAppRequest(), ob.getApprovalVariable(),
+                    Boolean.TRUE.equals(ob.getDoneReported()), Boolean.TRUE.equals(ob.getCallbackSent()), new CompletableFuture<>());
+            chain(ob.getNoRefCounter(), () -> sendSingle(item));
+        }
+    }
+
+    public int getPendingCount() {
+        return inFlight.size();
+    }
+
+    private boolean startSafely(Long id) {
+        try {
+            return outboxService.start(id) != null;
+        } catch (Exception e) {
+            // tetap QUEUED di outbox, diambil lagi oleh scheduler
+            log.error("m2mAsync >>> gagal ambil outbox {}", id, e);
+            return false;
+        }
+    }
+
+    private CompletableFuture<Void> chain(String noRef, Supplier<CompletableFuture<Void>> step) {
+        String key = noRef == null ? "" : noRef;
+        CompletableFuture<Void> next = tails.compute(key, (k, prev) -> {
+            CompletableFuture<Void> base = prev == null ? CompletableFuture.completedFuture(null) : prev;
+            return base.thenCompose(v -> step.get()).exceptionally(e -> null);
+        });
+        next.whenComplete((v, e) -> tails.remove(key, next));
+        return next;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("m2mAsync >>> gagal flush bulk", e);
+        }
+    }
+
+    private void flush() {
+        while (!pending.isEmpty()) {
+            // dikelompokkan per approvalVariable karena bulk callback hanya punya satu variable
+            Map<String, List<PendingDone>> groups = new LinkedHashMap<>();
+            PendingDone item;
+            int count = 0;
+            while (count < maxBatch && (item = pending.poll()) != null) {
+                groups.computeIfAbsent(item.approvalVariable(), k -> new ArrayList<>()).add(item);
+                count++;
+            }
+
+            for (var entry : groups.entrySet()) {
+                sendBulk(entry.getKey(), entry.getValue()).join();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> sendBulk(String approvalVariable, List<PendingDone> items) {
+        var pp = new ProcessReportBulkRequest();
+        pp.setIdAppDistribute(items.stream().map(PendingDone::idAppDistribute).toList());
+
+        var sbp = new SubmitRequestBulk();
+        sbp.setIdAppRequest(items.stream().map(PendingDone::idAppRequest).toList());
+        sbp.setApprovalVariable(approvalVariable);
+
+        AtomicBoolean doneSent = new AtomicBoolean();
+        log.info("m2mAsync >>> processDoneBulk & processCallbackBulk untuk {} data", items.size());
+        return toFuture(m2mService.processDoneBulk(pp))
+                .thenCompose(res -> {
+                    ensureSuccess(res, "processDoneBulk");
+                    doneSent.set(true);
+                    items.forEach(this::markDoneSafely);
+                    return toFuture(m2mService.processCallbackBulk(sbp));
+                })
+                .thenApply(res -> {
+                    ensureSuccess(res, "processCallbackBulk");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.warn("m2mAsync >>> bulk gagal ({}), kirim per data", e.getMessage());
+                    return false;
+                })
+                .thenCompose(ok -> {
+                    if (Boolean.TRUE.equals(ok)) {
+                        items.forEach(i -> finish(i, null));
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // processDone yang sudah terkirim lewat bulk tidak diulang
+                    return CompletableFuture.allOf(items.stream()
+                            .map(i -> doneSent.get() ? i.withDoneReported() : i)
+                            .map(this::sendSingle)
+                            .toArray(CompletableFuture[]::new));
+                });
+    }
+
+    // langkah yang sudah sukses (ditandai di outbox) tidak diulang
+    private CompletableFuture<Void> sendSingle(PendingDone item) {
+        var pp = new ProcessReportRequest();
+        pp.setIdAppDistribute(item.idAppDistribute());
+
+        var sr = new SubmitRequest();
+        sr.setIdAppRequest(item.idAppRequest());
+        sr.setApprovalVariable(item.approvalVariable());
+
+        CompletableFuture<Void> done = item.doneReported()
+                ? CompletableFuture.completedFuture(null)
+                : toFuture(m2mService.processDone(pp)).thenAccept(res -> {
+                    ensureSuccess(res, "processDone");
+                    markDoneSafely(item);
+                });
+
+        CompletableFuture<Void> callback = item.callbackSent()
+                ? done
+                : done.thenCompose(v -> toFuture(m2mService.processCallback(sr))).thenAccept(res -> ensureSuccess(res, "processCallback"));
+
+        return callback.handle((v, e) -> {
+            finish(item, e);
+            return null;
+        });
+    }
+
+    private void markDoneSafely(PendingDone item) {
+        if (item.outboxId() == null) {
+            return;
+        }
+        try {
+            outboxService.markDoneReported(item.outboxId());
+        } catch (Exception e) {
+            log.warn("m2mAsync >>> gagal tandai processDone {} di outbox: {}", item.noRef(), e.getMessage());
+        }
+    }
+
+    private void finish(PendingDone item, Throwable error) {
+        try {
+            if (item.outboxId() == null) {
+                if (error != null) {
+                    log.error("m2mAsync >>> processDone/processCallback gagal untuk {}: {}", item.noRef(), error.getMessage());
+                }
+            } else if (error == null) {
+                outboxService.complete(item.outboxId());
+            } else {
+                outboxService.retry(item.outboxId(), error.getMessage());
+            }
+        } catch (Exception e) {
+            // status outbox tidak ter-update: baris tetap RUNNING dan dikembalikan ke antrian saat restart
+            log.error("m2mAsync >>> gagal update outbox untuk {}", item.noRef(), e);
+        } finally {
+            if (item.outboxId() != null) {
+                inFlight.remove(item.outboxId());
+            }
+            item.future().complete(null);
+        }
+    }
+
+    private void ensureSuccess(Response<?> res, String label) {
+        if (!res.isSuccessful()) {
+            throw new IllegalStateException(label + " http " + res.code(), new IOException(res.message()));
+        }
+    }
+}
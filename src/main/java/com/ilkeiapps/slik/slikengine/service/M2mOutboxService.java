@@ -0,0 +1,214 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.ilkeiapps.slik.slikengine.entity.M2mOutbox;
+import com.ilkeiapps.slik.slikengine.entity.QM2mOutbox;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// processDone + processCallback untuk item yang sudah selesai di SLIK, disimpan dulu sebelum dikirim
+// supaya tidak hilang saat engine crash / restart di tengah window coalescing
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class M2mOutboxService {
+
+    private final EntityManager em;
+
+    private final CriteriaBuilderFactory configBuilder;
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Value("${cbas.m2m.outbox.max-attempt:8}")
+    private Integer maxAttempt;
+
+    @Value("${cbas.m2m.outbox.backoff-millis:5000}")
+    private Long backoffMillis;
+
+    @Value("${cbas.m2m.outbox.backoff-max-millis:300000}")
+    private Long backoffMaxMillis;
+
+    // baris DONE disimpan sekian hari untuk penelusuran, 0 = tidak pernah dihapus
+    @Value("${cbas.m2m.outbox.retention-days:7}")
+    private Integer retentionDays;
+
+    // satu baris per noRef + idAppDistribute; yang sudah DONE tidak dikirim ulang
+    public Long enqueue(String noRef, Long idAppDistribute, Long idAppRequest, String approvalVariable) {
+        String key = noRef + "-" + idAppDistribute;
+        var existing = findByKey(key);
+
+        if (existing == null) {
+            var ob = new M2mOutbox();
+            ob.setIdempotencyKey(key);
+            ob.setNoRefCounter(noRef);
+            ob.setIdAppDistribute(idAppDistribute);
+            ob.setIdAppRequest(idAppRequest);
+            ob.setApprovalVariable(approvalVariable);
+            ob.setDoneReported(false);
+            ob.setCallbackSent(false);
+            ob.setStatus(QUEUED);
+            ob.setAttempt(0);
+            ob.setNextAttempt(LocalDateTime.now());
+            ob.setCreateDate(LocalDateTime.now());
+            this.em.persist(ob);
+            this.em.flush();
+            return ob.getId();
+        }
+
+        if (DONE.equals(existing.getStatus())) {
+            log.info("m2mOutbox >>> {} sudah terkirim, diabaikan", key);
+            return null;
+        }
+
+        if (FAILED.equals(existing.getStatus())) {
+            existing.setStatus(QUEUED);
+            existing.setAttempt(0);
+            existing.setMessage(null);
+            existing.setNextAttempt(LocalDateTime.now());
+            existing.setEndDate(null);
+            this.em.merge(existing);
+            this.em.flush();
+            log.info("m2mOutbox >>> {} sebelumnya gagal, diantrikan ulang", key);
+        }
+        return existing.getId();
+    }
+
+    private M2mOutbox findByKey(String key) {
+        var qsg = new QM2mOutbox("o");
+        var csg = configBuilder.create(em, M2mOutbox.class).from(M2mOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.idempotencyKey.toString()).eq(key)
+                .getResultList();
+        return CollectionUtils.isEmpty(csg) ? null : csg.get(0);
+    }
+
+    public List<Long> findDue(int limit) {
+        var qsg = new QM2mOutbox("o");
+        return configBuilder.create(em, M2mOutbox.class).from(M2mOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(QUEUED)
+                .where(qsg.nextAttempt.toString()).le(LocalDateTime.now())
+                .orderByAsc(qsg.nextAttempt.toString())
+                .orderByAsc(qsg.id.toString())
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(M2mOutbox::getId)
+                .toList();
+    }
+
+    public M2mOutbox start(Long id) {
+        var ob = em.find(M2mOutbox.class, id);
+        if (ob == null || !QUEUED.equals(ob.getStatus())) {
+            return null;
+        }
+
+        ob.setStatus(RUNNING);
+        ob.setAttempt(ob.getAttempt() == null ? 1 : ob.getAttempt() + 1);
+        this.em.merge(ob);
+        this.em.flush();
+        em.detach(ob);
+        return ob;
+    }
+
+    public void markDoneReported(Long id) {
+        var ob = em.find(M2mOutbox.class, id);
+        if (ob != null) {
+            ob.setDoneReported(true);
+        }
+    }
+
+    public void markCallbackSent(Long id) {
+        var ob = em.find(M2mOutbox.class, id);
+        if (ob != null) {
+            ob.setCallbackSent(true);
+        }
+    }
+
+    // bulk sukses: done & callback terkirim sekaligus
+    public void complete(Long id) {
+        var ob = em.find(M2mOutbox.class, id);
+        if (ob == null) {
+            return;
+        }
+
+        ob.setDoneReported(true);
+        ob.setCallbackSent(true);
+        ob.setStatus(DONE);
+        ob.setMessage(null);
+        ob.setEndDate(LocalDateTime.now());
+        this.em.merge(ob);
+    }
+
+    // backoff eksponensial: base * 2^(attempt-1), dibatasi backoffMaxMillis
+    public void retry(Long id, String message) {
+        var ob = em.find(M2mOutbox.class, id);
+        if (ob == null) {
+            return;
+        }
+
+        int attempt = ob.getAttempt() == null ? 1 : ob.getAttempt();
+        if (attempt >= maxAttempt) {
+            ob.setStatus(FAILED);
+            ob.setEndDate(LocalDateTime.now());
+            log.error("m2mOutbox >>> {} gagal setelah {} percobaan: {}", ob.getIdempotencyKey(), attempt, message);
+        } else {
+            long delay = Math.min(backoffMaxMillis, backoffMillis << Math.min(attempt - 1, 20));
+            ob.setStatus(QUEUED);
+            ob.setNextAttempt(LocalDateTime.now().plusNanos(delay * 1_000_000L));
+            log.warn("m2mOutbox >>> {} percobaan {} gagal, retry dalam {} ms: {}", ob.getIdempotencyKey(), attempt, delay, message);
+        }
+        ob.setMessage(message);
+        this.em.merge(ob);
+    }
+
+    // outbox sekarang di DB file (tidak hilang saat restart), jadi baris DONE lama dibersihkan saat startup
+    public int purgeDone() {
+        if (retentionDays == null || retentionDays <= 0) {
+            return 0;
+        }
+
+        var qsg = new QM2mOutbox("o");
+        var csg = configBuilder.create(em, M2mOutbox.class).from(M2mOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(DONE)
+                .where(qsg.endDate.toString()).lt(LocalDateTime.now().minusDays(retentionDays))
+                .getResultList();
+        csg.forEach(this.em::remove);
+        this.em.flush();
+
+        if (!csg.isEmpty()) {
+            log.info("m2mOutbox >>> {} baris DONE lebih dari {} hari dihapus", csg.size(), retentionDays);
+        }
+        return csg.size();
+    }
+
+    // baris yang masih RUNNING saat engine mati dikembalikan ke antrian
+    public int recoverRunning() {
+        var qsg = new QM2mOutbox("o");
+        var csg = configBuilder.create(em, M2mOutbox.class).from(M2mOutbox.class, qsg.getMetadata().getName())
+                .where(qsg.status.toString()).eq(RUNNING)
+                .getResultList();
+        for (var ob : csg) {
+            ob.setStatus(QUEUED);
+            ob.setNextAttempt(LocalDateTime.now());
+            ob.setMessage("recovered after restart");
+            this.em.merge(ob);
+        }
+        this.em.flush();
+
+        if (!csg.isEmpty()) {
+            log.info("m2mOutbox >>> {} done/callback dikembalikan ke antrian", csg.size());
+        }
+        return csg.size();
+    }
+}
@@ -14,17 +14,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ManualProcessingService {
-    private static final int SLEEP_BEFORE_SUBMIT_MS = 3_000;
-    private static final int SLEEP_AFTER_WRONG_ACTION_MS = 5_000;
     private static final String MI_LOG_PREFIX = "manual interaktif>>> ";
     private static final String MI_ACT_FORM = "Isi Form Permintaan Interaktif";
     private static final String MI_ACT_CAPTCHA = "Pengisian Captcha dan Submit";
@@ -50,7 +46,9 @@ public class ManualProcessingService {
     private final EngineService engineService;
     private final ActivityServices activityService;
     private final IM2M m2mService;
+    private final M2mAsyncService m2mAsyncService;
     private final DownloadProcessingService downloadProcessingService;
+    private final PageWaitService pageWaitService;
 
     @Value("${cbas.engine.name}")
     private String robotName;
@@ -166,7 +164,7 @@ public class ManualProcessingService {
             return custType;
         }
 
-        safeSleep(SLEEP_BEFORE_SUBMIT_MS, MI_LOG_PREFIX + req.getNoRefCounter() + " sebelum submit captcha");
+        pageWaitService.waitBlockLayerGone(frame, "manual.before-search");
 
         CaptchaResult captchaResult = handleManualCaptchaAndSearch(req, driver, frame, cp, pp, sr);
         if (captchaResult == CaptchaResult.STOP_ALL) {
@@ -299,15 +297,6 @@ public class ManualProcessingService {
         return false;
     }
 
-    private void safeSleep(long millis, String context) {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("{} interrupted during sleep", context, e);
-        }
-    }
-
     private CaptchaResult handleManualCaptchaAndSearch(AppRequest req, Page driver, Frame frame, String captchaValue, ProcessReportRequest pp, SubmitRequest sr) {
         var sLog = activityService.start(this.robotName);
 
@@ -345,8 +334,7 @@ public class ManualProcessingService {
 
             commonProcessingService.clickOkButtonInFrame(frame);
 
-            byte[] sc = commonProcessingService.screenshot();
-            String stat = commonProcessingService.checkScreenshot(sc);
+            String stat = commonProcessingService.detectScreen();
             if (!"NONE".equals(stat)) {
                 log.error("{} {} status adalah: {}", MI_LOG_PREFIX, req.getNoRefCounter(), stat);
                 sLog.setName(MI_ACT_CAPTCHA);
@@ -397,18 +385,20 @@ public class ManualProcessingService {
     }
 
     private Frame waitForReportViewerFrame(Page driver, String noRefCounter) {
-        for (int i = 0; i < 30; i++) {
-            List<Frame> frames = driver.frames();
-            log.info("{} {} cek frame viewer attempt={} totalFrame={}", MI_LOG_PREFIX, noRefCounter, i + 1, frames.size());
-
-            for (Frame frame : frames) {
+        Frame[] found = new Frame[1];
+        pageWaitService.poll(driver, "manual.report-viewer", 30_000L, () -> {
+            for (Frame frame : driver.frames()) {
                 Frame candidate = findReportViewerFrameCandidate(frame, noRefCounter);
                 if (candidate != null) {
-                    return candidate;
+                    found[0] = candidate;
+                    return true;
                 }
             }
+            return false;
+        });
 
-            safeSleep(1_000L, MI_LOG_PREFIX + noRefCounter + " menunggu frame ReportViewer");
+        if (found[0] != null) {
+            return found[0];
         }
 
         log.error("{} {} frame ReportViewer tidak ditemukan", MI_LOG_PREFIX, noRefCounter);
@@ -487,13 +477,8 @@ public class ManualProcessingService {
             Locator exportButton = reportFrame.locator("button#export");
             exportButton.waitFor(new Locator.WaitForOptions().setTimeout(30_000));
 
-            long start = System.currentTimeMillis();
             long maxWaitMillis = 60_000L;
-
-            while (!exportButton.isEnabled() && (System.currentTimeMillis() - start) < maxWaitMillis) {
-                log.info("{} {} tombol export masih disabled, tunggu 1 detik...", MI_LOG_PREFIX, req.getNoRefCounter());
-                safeSleep(1_000L, MI_LOG_PREFIX + req.getNoRefCounter() + " menunggu export enable");
-            }
+            pageWaitService.waitForEnabled(reportFrame, "button#export", "manual.export-enabled", maxWaitMillis);
 
             if (!exportButton.isEnabled()) {
                 log.error("{} {} tombol export tetap disabled setelah {} ms, fallback ke proses lama", MI_LOG_PREFIX, req.getNoRefCounter(), maxWaitMillis);
@@ -531,13 +516,9 @@ public class ManualProcessingService {
     }
 
     private void handleManualDataNotFound(AppRequest req, ProcessReportRequest pp, SubmitRequest sr) {
-        try {
-            log.info("{} {} set status to fail request with payload: {}", MI_LOG_PREFIX, req.getNoRefCounter(), pp);
-            m2mService.processFail(pp).execute();
-            m2mService.processCallback(sr).execute();
-        } catch (IOException e) {
-            log.error("processing >>> {} error set status to fail request with payload: {}", req.getNoRefCounter(), pp, e);
-        }
+        log.info("{} {} set status to fail request with payload: {}", MI_LOG_PREFIX, req.getNoRefCounter(), pp);
+        m2mAsyncService.send(req.getNoRefCounter(), "processFail", () -> m2mService.processFail(pp));
+        m2mAsyncService.send(req.getNoRefCounter(), "processCallback", () -> m2mService.processCallback(sr));
     }
 
     private void backToManualForm(Page driver, AppRequest req) {
@@ -558,7 +539,7 @@ public class ManualProcessingService {
         } catch (Exception e) {
             log.warn("{} {} gagal balik ke form manual, refresh fallback", MI_LOG_PREFIX, req.getNoRefCounter(), e);
             webDriverService.refresh();
-            safeSleep(5_000L, "after refresh");
+            pageWaitService.waitSettled(driver, webDriverService.getFrame("main"), "manual.refresh");
         }
     }
 
@@ -573,8 +554,7 @@ public class ManualProcessingService {
 
         clickOkButtonIfAny(req, frame);
 
-        byte[] sc = commonProcessingService.screenshot();
-        String stat = commonProcessingService.checkScreenshot(sc);
+        String stat = commonProcessingService.detectScreen();
         if ("NONE".equals(stat)) {
             waitForSaveConfirmationFromOjk(req, frame, pp, sr);
         } else {
@@ -660,11 +640,9 @@ public class ManualProcessingService {
                 log.info("processing >>> {} got header text: {}", req.getNoRefCounter(), headerText);
 
                 if (headerText != null && headerText.contains(MI_MSG_WAIT_SUPERVISOR)) {
-                    log.info("processing >>> {} set status done with payload: {}", req.getNoRefCounter(), pp);
-                    m2mService.processDone(pp).execute();
-
-                    log.info("processing >>> {} send callback with payload: {}", req.getNoRefCounter(), sr);
-                    m2mService.processCallback(sr).execute();
+                    // dikirim async, digabung ke processDoneBulk / processCallbackBulk
+                    log.info("processing >>> {} set status done & callback with payload: {} {}", req.getNoRefCounter(), pp, sr);
+                    m2mAsyncService.doneAndCallback(req.getNoRefCounter(), pp, sr);
                 } else {
                     log.error("processing >>> {} result confirmation not found", req.getNoRefCounter());
                 }
@@ -684,10 +662,9 @@ public class ManualProcessingService {
         log.info("ProcessSlikManual >>> processing {} wrong action", req.getNoRefCounter());
         webDriverService.refresh();
 
-        safeSleep(SLEEP_AFTER_WRONG_ACTION_MS, "processLogin >>> sleep setelah wrong action");
+        pageWaitService.waitSettled(webDriverService.getDriver(), webDriverService.getFrame("main"), "manual.wrong-action");
 
-        byte[] ss = this.commonProcessingService.screenshot();
-        String stat = commonProcessingService.checkScreenshot(ss);
+        String stat = commonProcessingService.detectScreen();
         if (!"NONE".equals(stat)) {
             engineService.setCurrentStatusEngine(ENGINE_STATUS_CRASH);
         }
@@ -0,0 +1,161 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class OpenCvTemplateRegistry {
+
+    private static final String TEMPLATE_PREFIX = "opencv/";
+    private static final String CLASSPATH_PATTERN = "classpath*:opencv/*.png";
+    private static final int MIN_PYRAMID_SIZE = 12;
+
+    // folder eksternal opsional, file dengan nama sama meng-override template bawaan
+    @Value("${cbas.opencv.template.folder:}")
+    private String externalFolder;
+
+    private volatile Map<String, Mat> templates = Collections.emptyMap();
+    private volatile Map<String, Mat> pyramidTemplates = Collections.emptyMap();
+    private volatile long externalSignature = -1L;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    public Mat get(String path) {
+        return templates.get(path);
+    }
+
+    // template versi setengah resolusi untuk pencarian kasar
+    public Mat getPyramid(String path) {
+        return pyramidTemplates.get(path);
+    }
+
+    public Set<String> getPaths() {
+        return templates.keySet();
+    }
+
+    public synchronized void reload() {
+        Map<String, Mat> loaded = new HashMap<>();
+
+        try {
+            var resolver = new PathMatchingResourcePatternResolver();
+            for (Resource res : resolver.getResources(CLASSPATH_PATTERN)) {
+                try (InputStream is = res.getInputStream()) {
+                    putTemplate(loaded, TEMPLATE_PREFIX + res.getFilename(), is.readAllBytes());
+                }
+            }
+        } catch (Exception e) {
+            log.error("templateRegistry >>> gagal load template dari classpath", e);
+        }
+
+        File[] files = listExternalFiles();
+        for (File f : files) {
+            try {
+                putTemplate(loaded, TEMPLATE_PREFIX + f.getName(), Files.readAllBytes(f.toPath()));
+            } catch (Exception e) {
+                log.error("templateRegistry >>> gagal load template {}", f.getAbsolutePath(), e);
+            }
+        }
+        externalSignature = signature(files);
+
+        Map<String, Mat> pyramid = new HashMap<>();
+        for (var entry : loaded.entrySet()) {
+            Mat small = pyrDown(entry.getValue());
+            if (small != null) {
+                pyramid.put(entry.getKey(), small);
+            }
+        }
+
+        // Mat lama tidak di-release manual, bisa jadi masih dipakai matching yang sedang jalan
+        templates = Collections.unmodifiableMap(loaded);
+        pyramidTemplates = Collections.unmodifiableMap(pyramid);
+        log.info("templateRegistry >>> {} template loaded: {}", loaded.size(), loaded.keySet());
+    }
+
+    public void reloadIfChanged() {
+        if (externalFolder == null || externalFolder.isBlank()) {
+            return;
+        }
+
+        if (signature(listExternalFiles()) != externalSignature) {
+            log.info("templateRegistry >>> perubahan template di {}, reload", externalFolder);
+            reload();
+        }
+    }
+
+    // decode screenshot sekali ke grayscale, dipakai bersama oleh semua pengecekan template
+    public Mat decodeGray(byte[] image) {
+        if (image == null || image.length == 0) {
+            return null;
+        }
+
+        Mat gray = Imgcodecs.imdecode(new MatOfByte(image), Imgcodecs.IMREAD_GRAYSCALE);
+        if (gray.empty()) {
+            gray.release();
+            return null;
+        }
+        return gray;
+    }
+
+    public Mat pyrDown(Mat src) {
+        if (src == null || src.empty() || src.cols() < MIN_PYRAMID_SIZE * 2 || src.rows() < MIN_PYRAMID_SIZE * 2) {
+            return null;
+        }
+
+        Mat small = new Mat();
+        Imgproc.pyrDown(src, small);
+        return small;
+    }
+
+    private void putTemplate(Map<String, Mat> target, String key, byte[] bytes) {
+        Mat gray = decodeGray(bytes);
+        if (gray == null) {
+            log.warn("templateRegistry >>> template {} kosong / tidak valid", key);
+            return;
+        }
+        target.put(key, gray);
+    }
+
+    private File[] listExternalFiles() {
+        if (externalFolder == null || externalFolder.isBlank()) {
+            return new File[0];
+        }
+
+        File[] files = new File(externalFolder).listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private long signature(File[] files) {
+        long sig = files.length;
+        for (File f : files) {
+            sig = 31 * sig + f.getName().hashCode();
+            sig = 31 * sig + f.lastModified();
+            sig = 31 * sig + f.length();
+        }
+        return sig;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.Locator;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Response;
+import com.microsoft.playwright.TimeoutError;
+import com.microsoft.playwright.options.LoadState;
+import com.microsoft.playwright.options.WaitForSelectorState;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+// tunggu berbasis kondisi (blocker hilang, XHR SLIK selesai, state locator) pengganti sleep tetap;
+// timeout per key mengikuti percentile durasi yang pernah tercatat
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PageWaitService {
+
+    public static final String SEL_RCB_BLOCK_LAYER = "#rcbBlockLayer_slik-ui";
+
+    private final MeterRegistry meterRegistry;
+
+    // batas bawah timeout adaptif = sleep tetap terlama yang digantikan, supaya di hari SLIK lambat
+    // alur tidak lanjut lebih cepat dari sebelumnya ke halaman yang belum siap
+    @Value("${cbas.wait.min-millis:5000}")
+    private Long minMillis;
+
+    @Value("${cbas.wait.max-millis:15000}")
+    private Long maxMillis;
+
+    @Value("${cbas.wait.percentile:0.95}")
+    private Double percentile;
+
+    @Value("${cbas.wait.factor:3}")
+    private Double factor;
+
+    @Value("${cbas.wait.min-samples:20}")
+    private Integer minSamples;
+
+    @Value("${cbas.wait.poll-millis:100}")
+    private Integer pollMillis;
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    private static final class Samples {
+        private final long[] values = new long[128];
+        private int idx;
+        private int count;
+        private final long max;
+        private volatile long timeout;
+
+        Samples(long max) {
+            this.max = max;
+            this.timeout = max;
+        }
+    }
+
+    // true jika blocker rcbBlockLayer sudah hilang (atau memang tidak ada)
+    public boolean waitBlockLayerGone(Frame frame, String key) {
+        return waitBlockLayerGone(frame, key, maxMillis);
+    }
+
+    // max lebih kecil untuk pemanggil yang punya fallback sendiri (mis. hapus layer)
+    public boolean waitBlockLayerGone(Frame frame, String key, long max) {
+        if (frame == null) {
+            return true;
+        }
+        return run(key, max, t -> frame.waitForSelector(SEL_RCB_BLOCK_LAYER,
+                new Frame.WaitForSelectorOptions().setState(WaitForSelectorState.HIDDEN).setTimeout(t)));
+    }
+
+    public boolean waitForState(Locator locator, WaitForSelectorState state, String key) {
+        return run(key, maxMillis, t -> locator.waitFor(new Locator.WaitForOptions().setState(state).setTimeout(t)));
+    }
+
+    public boolean waitForEnabled(Frame frame, String selector, String key, long max) {
+        return run(key, max, t -> frame.waitForFunction(
+                "sel => { const el = document.querySelector(sel); return !!el && !el.disabled; }",
+                selector, new Frame.WaitForFunctionOptions().setTimeout(t)));
+    }
+
+    public boolean waitForFrame(Page page, String key, Predicate<Frame> matcher) {
+        return run(key, maxMillis, t -> page.waitForCondition(() -> page.frames().stream().anyMatch(matcher),
+                new Page.WaitForConditionOptions().setTimeout(t)));
+    }
+
+    public boolean waitForLoad(Page page, String key) {
+        return run(key, maxMillis, t -> page.waitForLoadState(LoadState.LOAD, new Page.WaitForLoadStateOptions().setTimeout(t)));
+    }
+
+    // jalankan action lalu tunggu response XHR SLIK yang url-nya cocok, bukan network idle seluruh halaman
+    public boolean waitForXhr(Page page, String key, String urlPart, Runnable action) {
+        Predicate<Response> matcher = r -> r.url().contains(urlPart);
+        return run(key, maxMillis, t -> page.waitForResponse(matcher, new Page.WaitForResponseOptions().setTimeout(t), action));
+    }
+
+    // halaman sudah load dan tidak ada blocker: pengganti sleep setelah klik menu / refresh
+    public boolean waitSettled(Page page, Frame frame, String key) {
+        boolean loaded = page == null || waitForLoad(page, key + ".load");
+        return waitBlockLayerGone(frame, key + ".blocker") && loaded;
+    }
+
+    // untuk kondisi yang perlu query Playwright (count, isEnabled): dicek per poll-millis,
+    // page.waitForTimeout tetap memproses event browser di antara pengecekan
+    public boolean poll(Page page, String key, long max, BooleanSupplier condition) {
+        return run(key, max, t -> {
+            long deadline = System.currentTimeMillis() + (long) t;
+            while (!condition.getAsBoolean()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new TimeoutError("poll " + key + " timeout " + (long) t + " ms");
+                }
+                page.waitForTimeout(pollMillis);
+            }
+        });
+    }
+
+    private interface Wait {
+        void await(double timeoutMillis);
+    }
+
+    private boolean run(String key, long max, Wait wait) {
+        Samples s = getSamples(key, max);
+        long timeout = s.timeout;
+        long start = System.nanoTime();
+        try {
+            wait.await(timeout);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            record(key, s, elapsed);
+            meterRegistry.timer("slik.wait", "key", key, "outcome", "ok").record(elapsed, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutError e) {
+            // timeout ikut dicatat supaya batas berikutnya melebar sendiri
+            record(key, s, timeout);
+            meterRegistry.timer("slik.wait", "key", key, "outcome", "timeout").record(timeout, TimeUnit.MILLISECONDS);
+            log.warn("pageWait >>> {} timeout setelah {} ms", key, timeout);
+            return false;
+        } catch (Exception e) {
+            log.warn("pageWait >>> {} gagal: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private Samples getSamples(String key, long max) {
+        return samples.computeIfAbsent(key, k -> new Samples(max));
+    }
+
+    private void record(String key, Samples s, long elapsed) {
+        synchronized (s) {
+            s.values[s.idx] = elapsed;
+            s.idx = (s.idx + 1) % s.values.length;
+            s.count = Math.min(s.count + 1, s.values.length);
+
+            if (s.count < minSamples) {
+                return;
+            }
+
+            long[] sorted = Arrays.copyOf(s.values, s.count);
+            Arrays.sort(sorted);
+            long p = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * percentile) - 1)];
+            long next = Math.max(Math.min(minMillis, s.max), Math.min(s.max, (long) (p * factor)));
+            if (next != s.timeout) {
+                log.debug("pageWait >>> {} timeout {} -> {} ms (p{}={} ms)", key, s.timeout, next, (int) (percentile * 100), p);
+                s.timeout = next;
+            }
+        }
+    }
+}
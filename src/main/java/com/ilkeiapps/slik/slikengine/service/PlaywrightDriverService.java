@@ -1,5 +1,6 @@
 package com.ilkeiapps.slik.slikengine.service;
 
+import com.ilkeiapps.slik.slikengine.playwrigth.PlaywrigthSession;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.Proxy;
@@ -9,8 +10,19 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -18,11 +30,14 @@ import java.util.Arrays;
 public class PlaywrightDriverService {
 
     private final EngineService engineService;
-    private Page driver;
+    private final BrowserRouteService browserRouteService;
     private Browser browser;
-    private BrowserContext context;
     private Playwright playwright;
-    private Frame currentFrame;
+
+    // session[0] adalah session utama (dipakai kalau thread tidak sedang lease)
+    private final List<PlaywrigthSession> sessions = Collections.synchronizedList(new ArrayList<>());
+    private final LinkedBlockingDeque<PlaywrigthSession> idleSessions = new LinkedBlockingDeque<>();
+    private final ThreadLocal<PlaywrigthSession> leasedSession = new ThreadLocal<>();
 
     @Value("${cbas.slik.proxy.use}")
     private Boolean useProxy;
@@ -36,6 +51,24 @@ public class PlaywrightDriverService {
     @Value("${cbas.engine.folder}")
     private String idebFolder;
 
+    @Value("${cbas.slik.session.pool-size:1}")
+    private Integer poolSize;
+
+    // folder artifact download Playwright (nama GUID), hasil saveAs tetap ke cbas.engine.folder
+    @Value("${cbas.slik.downloads.folder:}")
+    private String downloadsFolder;
+
+    // snapshot cookies + localStorage setelah login, dipulihkan saat context dibuat ulang
+    @Value("${cbas.slik.session.state.enabled:true}")
+    private Boolean stateEnabled;
+
+    @Value("${cbas.slik.session.state.folder:}")
+    private String stateFolder;
+
+    // snapshot lebih tua dari ini tidak dipakai (session SLIK di server kemungkinan sudah expired)
+    @Value("${cbas.slik.session.state.ttl-millis:1800000}")
+    private Long stateTtlMillis;
+
     private static final String SLIK_URL = "https://slik.ojk.go.id/slik";
     private static final String CRASH = "CRASH";
     private static final String INITIAL = "INITIAL";
@@ -45,8 +78,7 @@ public class PlaywrightDriverService {
     public synchronized void initDriver() {
         log.info("initDriver >>> starting....");
 
-        driver = null;
-        context = null;
+        clearSessions();
         browser = null;
         if (playwright != null) {
             try {
@@ -77,14 +109,22 @@ public class PlaywrightDriverService {
             if (!chkDir.exists() && !chkDir.mkdirs()) {
                 log.error("initDriver >>> gagal membuat folder download: {}", idebFolder);
             }
-            options.setDownloadsPath(chkDir.toPath());
+            File artifactDir = downloadsPath().toFile();
+            if (!artifactDir.exists() && !artifactDir.mkdirs()) {
+                log.error("initDriver >>> gagal membuat folder artifact download: {}", artifactDir);
+            }
+            options.setDownloadsPath(artifactDir.toPath());
 
             log.info("initDriver >>> step 3: launch browser");
             browser = playwright.chromium().launch(options);
 
-            log.info("initDriver >>> step 4: create context & page");
-            context = browser.newContext(new Browser.NewContextOptions().setAcceptDownloads(true));
-            driver = context.newPage();
+            int size = poolSize == null || poolSize < 1 ? 1 : poolSize;
+            log.info("initDriver >>> step 4: create {} context & page", size);
+            for (int i = 0; i < size; i++) {
+                PlaywrigthSession session = createSession(i);
+                sessions.add(session);
+                idleSessions.offer(session);
+            }
 
             log.info("initDriver >>> driver created successfully");
 
@@ -95,8 +135,7 @@ public class PlaywrightDriverService {
             }
         } catch (PlaywrightException e) {
             log.error("initDriver >>> Playwright error: {}", e.getMessage(), e);
-            driver = null;
-            context = null;
+            clearSessions();
             browser = null;
 
             if (playwright != null) {
@@ -118,6 +157,262 @@ public class PlaywrightDriverService {
         log.info("initDriver >>> setup done....");
     }
 
+    private PlaywrigthSession createSession(int id) {
+        BrowserContext ctx = newContext(id);
+        browserRouteService.install(ctx);
+        Page page = ctx.newPage();
+        log.info("initDriver >>> session {} created", id);
+        return new PlaywrigthSession(id, ctx, page);
+    }
+
+    private BrowserContext newContext(int id) {
+        Path state = usableState(id);
+        if (state != null) {
+            try {
+                BrowserContext ctx = browser.newContext(new Browser.NewContextOptions()
+                        .setAcceptDownloads(true)
+                        .setStorageStatePath(state));
+                log.info("initDriver >>> session {} pakai storage state {}", id, state.getFileName());
+                return ctx;
+            } catch (PlaywrightException e) {
+                log.warn("initDriver >>> storage state session {} tidak valid, dihapus: {}", id, e.getMessage());
+                deleteState(id);
+            }
+        }
+        return browser.newContext(new Browser.NewContextOptions().setAcceptDownloads(true));
+    }
+
+    // simpan state session yang sedang dipakai thread ini, dipanggil setelah login sukses
+    public void saveSessionState() {
+        saveSessionState(currentSession());
+    }
+
+    public void saveSessionState(PlaywrigthSession session) {
+        if (!Boolean.TRUE.equals(stateEnabled) || session == null || session.getContext() == null) {
+            return;
+        }
+        Path target = statePath(session.getId());
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), "state", ".tmp");
+            session.getContext().storageState(new BrowserContext.StorageStateOptions().setPath(tmp));
+            restrictPermission(tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("sessionState >>> session {} disimpan", session.getId());
+        } catch (Exception e) {
+            log.warn("sessionState >>> gagal simpan state session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    // state tidak lagi valid (logout / session check gagal), jangan dipulihkan lagi
+    public void clearSessionState() {
+        PlaywrigthSession session = currentSession();
+        if (session != null) {
+            deleteState(session.getId());
+        }
+    }
+
+    public boolean isSessionStateEnabled() {
+        return Boolean.TRUE.equals(stateEnabled);
+    }
+
+    private Path usableState(int id) {
+        if (!Boolean.TRUE.equals(stateEnabled)) {
+            return null;
+        }
+        Path path = statePath(id);
+        try {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis() > stateTtlMillis) {
+                log.info("initDriver >>> storage state session {} kadaluarsa, login ulang", id);
+                deleteState(id);
+                return null;
+            }
+            return path;
+        } catch (Exception e) {
+            log.warn("initDriver >>> gagal cek storage state session {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteState(int id) {
+        try {
+            Files.deleteIfExists(statePath(id));
+        } catch (Exception e) {
+            log.warn("sessionState >>> gagal hapus state session {}: {}", id, e.getMessage());
+        }
+    }
+
+    // di luar folder engine supaya artifact GUID tidak ikut terbaca watcher sebagai file iDeb kedua
+    private Path downloadsPath() {
+        if (downloadsFolder == null || downloadsFolder.isBlank()) {
+            Path engine = Paths.get(idebFolder).toAbsolutePath();
+            return (engine.getParent() != null ? engine.getParent() : engine).resolve("playwright-downloads");
+        }
+        return Paths.get(downloadsFolder);
+    }
+
+    // di luar folder download supaya tidak terbaca watcher
+    private Path statePath(int id) {
+        Path dir;
+        if (stateFolder == null || stateFolder.isBlank()) {
+            Path engine = Paths.get(idebFolder).toAbsolutePath();
+            dir = (engine.getParent() != null ? engine.getParent() : engine).resolve("session-state");
+        } else {
+            dir = Paths.get(stateFolder);
+        }
+        return dir.resolve("session-" + id + ".json");
+    }
+
+    // file berisi cookie session SLIK, hanya boleh dibaca user engine
+    private void restrictPermission(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            log.debug("sessionState >>> filesystem tidak mendukung posix permission");
+        } catch (Exception e) {
+            log.warn("sessionState >>> gagal set permission {}: {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    private void clearSessions() {
+        idleSessions.clear();
+        sessions.clear();
+    }
+
+    // ambil session dari pool & ikat ke thread ini, getDriver()/getFrame() ikut pakai session ini.
+    // wajib dikembalikan lewat release()
+    public PlaywrigthSession lease(long timeoutMillis) {
+        PlaywrigthSession current = leasedSession.get();
+        if (current != null) {
+            return current;
+        }
+
+        try {
+            PlaywrigthSession session = idleSessions.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (session == null) {
+                log.warn("lease >>> tidak ada session idle dalam {} ms", timeoutMillis);
+                return null;
+            }
+            session.setLeasedAt(LocalDateTime.now());
+            leasedSession.set(session);
+            log.info("lease >>> session {} dipakai oleh {}", session.getId(), Thread.currentThread().getName());
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("lease >>> interrupted saat menunggu session", e);
+            return null;
+        }
+    }
+
+    // lease session tertentu (mis. login per session di pool), menunggu sampai session itu idle
+    public PlaywrigthSession lease(PlaywrigthSession session, long timeoutMillis) {
+        if (session == null) {
+            return null;
+        }
+        PlaywrigthSession current = leasedSession.get();
+        if (current != null) {
+            return current == session ? current : null;
+        }
+        return awaitLease(timeoutMillis, () -> idleSessions.remove(session) ? session : null);
+    }
+
+    // lease session yang sudah login (session 0 dianggap login selama engine tidak INITIAL/CRASH)
+    public PlaywrigthSession leaseReady(long timeoutMillis) {
+        PlaywrigthSession current = leasedSession.get();
+        if (current != null) {
+            return current;
+        }
+        return awaitLease(timeoutMillis, () -> {
+            for (PlaywrigthSession s : idleSessions) {
+                if (isReady(s) && idleSessions.remove(s)) {
+                    return s;
+                }
+            }
+            return null;
+        });
+    }
+
+    public int getReadySessionCount() {
+        synchronized (sessions) {
+            return (int) sessions.stream().filter(this::isReady).count();
+        }
+    }
+
+    private boolean isReady(PlaywrigthSession session) {
+        return !session.isClosed() && (session.getId() == 0 || session.isLoggedIn());
+    }
+
+    private PlaywrigthSession awaitLease(long timeoutMillis, Supplier<PlaywrigthSession> picker) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            while (true) {
+                PlaywrigthSession session = picker.get();
+                if (session != null) {
+                    session.setLeasedAt(LocalDateTime.now());
+                    leasedSession.set(session);
+                    log.info("lease >>> session {} dipakai oleh {}", session.getId(), Thread.currentThread().getName());
+                    return session;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    log.warn("lease >>> tidak ada session yang cocok dalam {} ms", timeoutMillis);
+                    return null;
+                }
+                Thread.sleep(Math.min(100, remaining));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("lease >>> interrupted saat menunggu session", e);
+            return null;
+        }
+    }
+
+    public void release(PlaywrigthSession session) {
+        if (session == null) {
+            return;
+        }
+
+        if (leasedSession.get() == session) {
+            leasedSession.remove();
+        }
+        session.setCurrentFrame(null);
+        session.setLeasedAt(null);
+
+        // session dari browser lama (sudah restart) tidak dikembalikan ke pool
+        if (sessions.contains(session) && !idleSessions.contains(session)) {
+            idleSessions.offerFirst(session);
+            log.info("release >>> session {} dikembalikan ke pool", session.getId());
+        }
+    }
+
+    public List<PlaywrigthSession> getSessions() {
+        synchronized (sessions) {
+            return new ArrayList<>(sessions);
+        }
+    }
+
+    public int getIdleSessionCount() {
+        return idleSessions.size();
+    }
+
+    private PlaywrigthSession currentSession() {
+        PlaywrigthSession session = leasedSession.get();
+        if (session != null) {
+            return session;
+        }
+        synchronized (sessions) {
+            return sessions.isEmpty() ? null : sessions.get(0);
+        }
+    }
+
+    private Page currentPage() {
+        PlaywrigthSession session = currentSession();
+        return session == null ? null : session.getPage();
+    }
+
     public void restart() {
         log.info("restart >>> restarting....");
 
@@ -127,6 +422,13 @@ public class PlaywrightDriverService {
 
         sleepQuietly(5_000, "before cleanup");
 
+        // context yang masih hidup: ambil cookie terbaru sebelum ditutup supaya login bisa dilewati
+        for (PlaywrigthSession session : getSessions()) {
+            if (session.isLoggedIn() || session.getId() == 0) {
+                saveSessionState(session);
+            }
+        }
+
         closeResources();
 
         sleepQuietly(2_000, "after cleanup");
@@ -155,15 +457,17 @@ public class PlaywrightDriverService {
     }
 
     private void closeResources() {
-        closePage(driver);
-        driver = null;
+        for (PlaywrigthSession session : getSessions()) {
+            closePage(session.getPage());
+        }
+        clearSessions();
+        leasedSession.remove();
 
         closeBrowser(browser);
         browser = null;
 
         closePlaywright();
         playwright = null;
-        context = null;
     }
 
     private void closePage(Page page) {
@@ -200,6 +504,7 @@ public class PlaywrightDriverService {
         try {
             this.initDriver();
 
+            Page driver = currentPage();
             if (driver != null) {
                 driver.navigate(SLIK_URL);
                 driver.waitForLoadState(LoadState.LOAD);
@@ -224,6 +529,7 @@ public class PlaywrightDriverService {
 
     public void refreshLogin() {
         log.info("refreshLogin >>> refresh browser for login");
+        Page driver = currentPage();
         if (driver != null) {
             driver.reload();
         } else {
@@ -237,6 +543,7 @@ public class PlaywrightDriverService {
             engineService.setCurrentStatusEngine("IDLE");
             engineService.setLastUpdate(LocalDateTime.now());
         }
+        Page driver = currentPage();
         if (driver != null) {
             driver.reload();
         } else {
@@ -246,6 +553,7 @@ public class PlaywrightDriverService {
     }
 
     public Page getDriver() {
+        Page driver = currentPage();
         if (driver == null) {
             log.error("getDriver >>> driver null, Playwright belum di-init");
         }
@@ -253,6 +561,7 @@ public class PlaywrightDriverService {
     }
 
     public Frame getFrame(String frameName) {
+        Page driver = currentPage();
         if (driver == null) {
             log.warn("getFrame >>> driver null, tidak bisa ambil frame '{}'", frameName);
             return null;
@@ -276,21 +585,31 @@ public class PlaywrightDriverService {
     }
 
     public Frame getFrame() {
-        if (currentFrame != null) {
-            return currentFrame;
+        PlaywrigthSession session = currentSession();
+        if (session == null) {
+            return getFrame("main");
+        }
+        if (session.getCurrentFrame() != null) {
+            return session.getCurrentFrame();
         }
-        currentFrame = getFrame("main");
-        return currentFrame;
+        session.setCurrentFrame(getFrame("main"));
+        return session.getCurrentFrame();
     }
 
     public void setFrame(Frame finalFrame) {
+        PlaywrigthSession session = currentSession();
+        if (session == null) {
+            log.warn("setFrame >>> tidak ada session aktif, skip");
+            return;
+        }
+
         if (finalFrame == null) {
             log.warn("setFrame >>> finalFrame null, clear currentFrame");
-            this.currentFrame = null;
+            session.setCurrentFrame(null);
             return;
         }
 
-        this.currentFrame = finalFrame;
+        session.setCurrentFrame(finalFrame);
         try {
             log.info("setFrame >>> frame set: name={} url={}",
                     finalFrame.name(), finalFrame.url());
@@ -300,9 +619,12 @@ public class PlaywrightDriverService {
     }
 
     public boolean isPlaywrightActive() {
-        if (playwright == null || browser == null || context == null || driver == null) {
+        PlaywrigthSession session = currentSession();
+        if (playwright == null || browser == null || session == null) {
             return false;
         }
+        BrowserContext context = session.getContext();
+        Page driver = session.getPage();
 
         try {
             if (!browser.isConnected()) {
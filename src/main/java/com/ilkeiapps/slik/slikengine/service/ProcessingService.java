@@ -5,12 +5,17 @@ import com.ilkeiapps.ilkeitool.validator.IlKeiValidator;
 import com.ilkeiapps.slik.slikengine.bean.ApiResponse;
 import com.ilkeiapps.slik.slikengine.bean.AppRequestPayload;
 import com.ilkeiapps.slik.slikengine.bean.AppRequestWrapper;
+import com.ilkeiapps.slik.slikengine.bean.EngineJobView;
 import com.ilkeiapps.slik.slikengine.entity.EngineConfig;
+import com.ilkeiapps.slik.slikengine.entity.EngineJob;
 import com.ilkeiapps.slik.slikengine.entity.QEngineConfig;
+import com.ilkeiapps.slik.slikengine.playwrigth.PlaywrigthSession;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.WaitUntilState;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +23,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -34,6 +43,21 @@ public class ProcessingService {
     private final CombinationProcessingService combinationProcessingService;
     private final EngineService engineService;
     private final PlaywrightDriverService webDriverService;
+    private final EngineJobService engineJobService;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    // jumlah process() yang sedang berjalan, maksimal satu
+    private final AtomicInteger processing = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // job browser jalan di thread sendiri, thread @Scheduled hanya memberi sinyal
+    private ExecutorService queueExecutor;
+
+    // Playwright tidak thread-safe & status engine global, jadi semua job browser jalan satu per satu di satu thread;
+    // pool session hanya untuk isolasi (cookie / storage per session), bukan paralelisme
+    private ExecutorService jobWorker;
 
     @Value("${cbas.engine.name}")
     private String robotName;
@@ -51,6 +75,27 @@ public class ProcessingService {
     private static final String MSG_ENGINE_CRASH = "Robot crash, stopping processing";
     private static final String MSG_ENGINE_BUSY = "Robot masih mengerjakan tugas lain";
 
+    @PostConstruct
+    public void init() {
+        queueExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "engine-queue");
+            t.setDaemon(true);
+            return t;
+        });
+
+        jobWorker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "engine-driver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queueExecutor.shutdownNow();
+        jobWorker.shutdownNow();
+    }
+
     @FunctionalInterface
     private interface PayloadProcessor {
         void process(AppRequestPayload payload);
@@ -75,11 +120,12 @@ public class ProcessingService {
 
         engineService.setCurrentStatusEngine(STATUS_PROCESSING);
 
-        // 3) Sudah login tapi engine masih INITIAL/NONE? (misal habis restart engine)
+        // 3) Sudah login tapi engine masih INITIAL/NONE? (misal habis restart engine / storage state dipulihkan)
         if (checkAlreadyLoggedIn(pageDriver)) {
             markLoginSuccess();
             return true;
         }
+        webDriverService.clearSessionState();
 
         // 4) Handle halaman non-login (maintenance / banner lain)
         if (handleNonLoginScreenshot()) {
@@ -100,6 +146,7 @@ public class ProcessingService {
         }
 
         markLoginSuccess();
+        webDriverService.saveSessionState();
         return true;
     }
 
@@ -146,8 +193,7 @@ public class ProcessingService {
     }
 
     private boolean handleNonLoginScreenshot() {
-        byte[] sc = commonProcessingService.screenshot();
-        String chk = commonProcessingService.checkScreenshot(sc);
+        String chk = commonProcessingService.detectScreen();
 
         if (!"LOGIN".equals(chk) && !STATUS_NONE.equals(chk)) {
             log.info("doLogin >>> home not found, input type not found, do refresh, chk is: {}", chk);
@@ -235,6 +281,173 @@ public class ProcessingService {
         engineService.setLastUpdate(LocalDateTime.now());
     }
 
+    // login untuk session tambahan di pool (session utama sudah di-handle doLogin)
+    public int loginPooledSessions() {
+        int success = 0;
+        for (PlaywrigthSession session : webDriverService.getSessions()) {
+            if (session.getId() == 0 || session.isLoggedIn()) {
+                continue;
+            }
+
+            // lease session ini secara spesifik, bukan head deque (bisa session 0 lagi)
+            PlaywrigthSession leased = webDriverService.lease(session, 60_000);
+            if (leased == null) {
+                log.warn("loginPooledSessions >>> session {} tidak idle dalam 60 dtk, skip", session.getId());
+                continue;
+            }
+
+            try {
+                if (loginSession(leased)) {
+                    success++;
+                }
+            } finally {
+                webDriverService.release(leased);
+            }
+        }
+        log.info("loginPooledSessions >>> {} session tambahan berhasil login", success);
+        return success;
+    }
+
+    private boolean loginSession(PlaywrigthSession session) {
+        Page pageDriver = session.getPage();
+        if (!navigateToSlik(pageDriver, "POOL-" + session.getId())) {
+            return false;
+        }
+
+        if (checkAlreadyLoggedIn(pageDriver)) {
+            session.setLoggedIn(true);
+            webDriverService.saveSessionState(session);
+            return true;
+        }
+
+        String role = loadRoleConfig();
+        if (role == null) {
+            return false;
+        }
+
+        try {
+            var login = commonProcessingService.processLogin(APPV.equals(role) ? 2 : 1);
+            session.setLoggedIn(Boolean.TRUE.equals(login.getResult()));
+            if (session.isLoggedIn()) {
+                webDriverService.saveSessionState(session);
+            }
+        } catch (Exception e) {
+            log.error("loginPooledSessions >>> session {} gagal login: {}", session.getId(), e.getMessage(), e);
+            session.setLoggedIn(false);
+        }
+
+        log.info("loginPooledSessions >>> session {} loggedIn={}", session.getId(), session.isLoggedIn());
+        return session.isLoggedIn();
+    }
+
+    public ApiResponse<EngineJobView> enqueue(AppRequestWrapper src) {
+        var wrap = new ApiResponse<EngineJobView>();
+        wrap.setStatus(false);
+
+        if (src == null) {
+            wrap.setMessage("Payload tidak boleh null");
+            return wrap;
+        }
+
+        var jobs = engineJobService.enqueue(src);
+        if (jobs.isEmpty()) {
+            wrap.setMessage("Tidak ada segment yang bisa diproses");
+            return wrap;
+        }
+
+        wrap.setStatus(true);
+        wrap.setMessage("Request masuk antrian");
+        wrap.setData(jobs.stream().map(EngineJobView::of).toList());
+        signalQueue();
+        return wrap;
+    }
+
+    // dipanggil scheduler / setelah enqueue / setelah job selesai
+    public void signalQueue() {
+        if (draining.get()) {
+            return;
+        }
+        try {
+            queueExecutor.execute(this::drainQueue);
+        } catch (Exception e) {
+            log.warn("signalQueue >>> gagal jadwalkan drain: {}", e.getMessage());
+        }
+    }
+
+    // ambil job berikutnya sesuai prioritas kalau engine IDLE, job jalan di thread driver dengan session hasil lease
+    public void drainQueue() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            while (canTakeJob()) {
+                EngineJob job = engineJobService.claimNext();
+                if (job == null) {
+                    return;
+                }
+
+                log.info("drainQueue >>> job {} segment {} (attempt {})", job.getId(), job.getSegment(), job.getAttempt());
+                inFlight.incrementAndGet();
+                try {
+                    jobWorker.execute(() -> runJob(job));
+                } catch (RuntimeException e) {
+                    inFlight.decrementAndGet();
+                    log.error("drainQueue >>> gagal submit job {}", job.getId(), e);
+                    engineJobService.requeue(job.getId(), e.getMessage());
+                    return;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private boolean canTakeJob() {
+        // satu job sekaligus; PROCESSING dari luar antrian (mis. approve / login) -> tunggu sampai IDLE
+        return inFlight.get() == 0
+                && STATUS_IDLE.equals(engineService.getCurrentStatusEngine())
+                && webDriverService.getReadySessionCount() > 0;
+    }
+
+    private void runJob(EngineJob job) {
+        PlaywrigthSession session = webDriverService.leaseReady(60_000);
+        try {
+            if (session == null) {
+                engineJobService.requeue(job.getId(), "Tidak ada session SLIK yang siap");
+                return;
+            }
+
+            AppRequestWrapper wrapper = engineJobService.toWrapper(job);
+            if (wrapper == null) {
+                engineJobService.complete(job.getId(), false, MSG_DATA_INVALID);
+                return;
+            }
+
+            ApiResponse<AppRequestWrapper> res;
+            try {
+                res = process(wrapper);
+            } catch (RuntimeException e) {
+                log.error("drainQueue >>> job {} error", job.getId(), e);
+                engineJobService.requeue(job.getId(), e.getMessage());
+                return;
+            }
+
+            if (MSG_ENGINE_BUSY.equals(res.getMessage()) || MSG_ENGINE_CRASH.equals(res.getMessage())) {
+                engineJobService.requeue(job.getId(), res.getMessage());
+                return;
+            }
+
+            engineJobService.complete(job.getId(), Boolean.TRUE.equals(res.getStatus()), res.getMessage());
+        } catch (RuntimeException e) {
+            log.error("drainQueue >>> job {} gagal di worker", job.getId(), e);
+        } finally {
+            webDriverService.release(session);
+            inFlight.decrementAndGet();
+            signalQueue();
+        }
+    }
+
     public ApiResponse<AppRequestWrapper> process(AppRequestWrapper src) {
         log.info("meltheexecutor >>> processing payload");
 
@@ -253,14 +466,12 @@ public class ProcessingService {
             return wrap;
         }
 
-        if (!STATUS_IDLE.equals(es)) {
+        if (!enterProcessing()) {
             log.info("meltheexecutor >>> robot is busy, stopping");
             wrap.setMessage(MSG_ENGINE_BUSY);
             return wrap;
         }
 
-        engineService.setCurrentStatusEngine(STATUS_PROCESSING);
-
         try {
             // 1) BATCH REQUEST
             if (processSegment(src.getBatch(), "processing batch", "batch", true, wrap, batchProcessingService::uploadBatch)) {
@@ -292,9 +503,7 @@ public class ProcessingService {
             wrap.setMessage("Terjadi kesalahan tak terduga saat memproses payload");
             return wrap;
         } finally {
-            log.info("process >>> setting status idle");
-            engineService.setCurrentStatusEngine(STATUS_IDLE);
-            log.info("meltheexecutor >>> set status IDLE");
+            exitProcessing(false);
         }
 
         wrap.setStatus(true);
@@ -302,6 +511,29 @@ public class ProcessingService {
         return wrap;
     }
 
+    // hanya satu process() / approve() yang boleh memegang browser
+    private boolean enterProcessing() {
+        synchronized (processing) {
+            if (!STATUS_IDLE.equals(engineService.getCurrentStatusEngine()) || processing.get() > 0) {
+                return false;
+            }
+            processing.incrementAndGet();
+            engineService.setCurrentStatusEngine(STATUS_PROCESSING);
+            return true;
+        }
+    }
+
+    // status CRASH dibiarkan untuk checkCrash
+    private void exitProcessing(boolean keepStatus) {
+        synchronized (processing) {
+            if (processing.decrementAndGet() == 0 && !keepStatus) {
+                log.info("process >>> setting status idle");
+                engineService.setCurrentStatusEngine(STATUS_IDLE);
+                log.info("meltheexecutor >>> set status IDLE");
+            }
+        }
+    }
+
     private boolean processSegment(AppRequestPayload payload, String logContext, String segmentName, boolean requireData, ApiResponse<AppRequestWrapper> wrap, PayloadProcessor processor) {
         if (payload == null) {
             return false;
@@ -318,7 +550,6 @@ public class ProcessingService {
         } catch (RuntimeException e) {
             log.error("meltheexecutor >>> error saat {}: {}", logContext, e.getMessage(), e);
             wrap.setMessage("Terjadi kesalahan saat " + logContext);
-            engineService.setCurrentStatusEngine(STATUS_IDLE);
             return true;
         }
 
@@ -335,21 +566,18 @@ public class ProcessingService {
             String msg = pr.getMessage();
             wrap.setMessage(msg);
             log.error("meltheexecutor >>> {} payload error: {}", logContext, msg);
-            engineService.setCurrentStatusEngine(STATUS_IDLE);
             return false;
         }
 
         if (!robotName.equals(payload.getRobot())) {
             wrap.setMessage(MSG_ROBOT_INVALID);
             log.error("meltheexecutor >>> {} kode robot tidak valid", logContext);
-            engineService.setCurrentStatusEngine(STATUS_IDLE);
             return false;
         }
 
         if (requireData && (payload.getData() == null || payload.getData().isEmpty())) {
             wrap.setMessage(MSG_DATA_INVALID);
             log.error("meltheexecutor >>> {} data request tidak valid", logContext);
-            engineService.setCurrentStatusEngine(STATUS_IDLE);
             return false;
         }
 
@@ -379,25 +607,37 @@ public class ProcessingService {
             return;
         }
 
-        if (!STATUS_IDLE.equals(es)) {
-            log.info("meltheexecutor >>> robot is busy, stopping");
+        // approval juga pakai session hasil lease, supaya tidak bentrok dengan worker antrian
+        PlaywrigthSession session = webDriverService.leaseReady(60_000);
+        if (session == null) {
+            log.info("meltheexecutor >>> tidak ada session siap untuk approval, stopping");
             return;
         }
 
-        engineService.setCurrentStatusEngine(STATUS_PROCESSING);
+        try {
+            if (!enterProcessing()) {
+                log.info("meltheexecutor >>> robot is busy, stopping");
+                return;
+            }
 
-        approvalProcessingService.approval(src);
+            boolean crashed = false;
+            try {
+                approvalProcessingService.approval(src);
 
-        es = engineService.getCurrentStatusEngine();
-        commonProcessingService.doRefresh();
+                es = engineService.getCurrentStatusEngine();
+                commonProcessingService.doRefresh();
 
-        if (STATUS_CRASH.equals(es)) {
-            log.error("meltheexecutor >>> approval ended with CRASH state");
-            return;
+                crashed = STATUS_CRASH.equals(es);
+                if (crashed) {
+                    log.error("meltheexecutor >>> approval ended with CRASH state");
+                }
+            } finally {
+                log.info("approval >>> setting status idle");
+                exitProcessing(crashed);
+            }
+        } finally {
+            webDriverService.release(session);
         }
-
-        log.info("approval >>> setting status idle");
-        engineService.setCurrentStatusEngine(STATUS_IDLE);
     }
 
     @SuppressWarnings("resource")
@@ -441,6 +681,7 @@ public class ProcessingService {
         try {
             processLogout(webDriverService.getFrame("main"));
         } finally {
+            webDriverService.clearSessionState();
             engineService.setCurrentStatusEngine(STATUS_INITIAL);
             engineService.setLastPlaywrigthStatus(STATUS_NONE);
             engineService.setLastUpdate(LocalDateTime.now());
@@ -450,6 +691,19 @@ public class ProcessingService {
     public void restartBrowser() {
         log.info("restartBrowser >>> manual restart requested");
 
+        // session SLIK dipertahankan lewat storage state, logout justru membuat snapshot tidak valid
+        if (webDriverService.isSessionStateEnabled()) {
+            webDriverService.saveSessionState();
+            engineService.setCurrentStatusEngine(STATUS_INITIAL);
+            engineService.setLastPlaywrigthStatus(STATUS_NONE);
+            engineService.setLastUpdate(LocalDateTime.now());
+            webDriverService.restart();
+
+            boolean ok = doLogin();
+            log.info("restartBrowser >>> doLogin result = {} (storage state)", ok);
+            return;
+        }
+
         try {
             logout();
         } catch (InterruptedException ie) {
@@ -85,9 +85,10 @@ public class RobotService {
         obj.setJvmCpuUsage(this.getMeasurement("process.cpu.usage"));
         obj.setDiskFree(this.getMeasurement("disk.free"));
         obj.setPendingProcess("");
-        obj.setCurrentProcess(engineService.getCurrentProcess());
-        obj.setStatusProcessing(engineService.getCurrentStatusEngine());
-        obj.setLastUpdate(engineService.getLastUpdate());
+        var snap = engineService.getSnapshot();
+        obj.setCurrentProcess(snap.getCurrentProcess() == null ? "NONE" : snap.getCurrentProcess());
+        obj.setStatusProcessing(snap.getStatusEngine() == null ? "NONE" : snap.getStatusEngine());
+        obj.setLastUpdate(snap.getLastUpdateEngine());
 
         var es = engineService.getCurrentStatusEngine();
         var ls = engineService.getLastPlaywrigthStatus();
@@ -116,9 +117,10 @@ public class RobotService {
         obj.setJvmCpuUsage(this.getMeasurement("process.cpu.usage"));
         obj.setDiskFree(this.getMeasurement("disk.free"));
         obj.setPendingProcess("");
-        obj.setCurrentProcess(engineService.getCurrentProcess());
-        obj.setStatusProcessing(engineService.getCurrentStatusEngine());
-        obj.setLastUpdate(engineService.getLastUpdate());
+        var snap = engineService.getSnapshot();
+        obj.setCurrentProcess(snap.getCurrentProcess() == null ? "NONE" : snap.getCurrentProcess());
+        obj.setStatusProcessing(snap.getStatusEngine() == null ? "NONE" : snap.getStatusEngine());
+        obj.setLastUpdate(snap.getLastUpdateEngine());
 
         wrap.insertNewData(obj);
         return wrap;
@@ -159,9 +161,10 @@ public class RobotService {
         obj.setJvmCpuUsage(null);
         obj.setDiskFree(null);
         obj.setPendingProcess("");
-        obj.setCurrentProcess(engineService.getCurrentProcess());
-        obj.setStatusProcessing(engineService.getCurrentStatusEngine());
-        obj.setLastUpdate(engineService.getLastUpdate());
+        var snap = engineService.getSnapshot();
+        obj.setCurrentProcess(snap.getCurrentProcess() == null ? "NONE" : snap.getCurrentProcess());
+        obj.setStatusProcessing(snap.getStatusEngine() == null ? "NONE" : snap.getStatusEngine());
+        obj.setLastUpdate(snap.getLastUpdateEngine());
 
         log.info("sendDownStatus >>> sending DOWN heartbeat before shutdown");
 
@@ -260,8 +263,7 @@ public class RobotService {
     }
 
     private boolean handleSpecialScreenIfAny() {
-        var screenshot = commonProcessingService.screenshot();
-        var screenCode = commonProcessingService.checkScreenshot(screenshot);
+        var screenCode = commonProcessingService.detectScreen();
 
         if (!SESSION_SCREEN_CODES.contains(screenCode)) {
             return false;
@@ -384,8 +386,7 @@ public class RobotService {
     }
 
     private boolean handleSessionProblemIfAny() {
-        byte[] ss = commonProcessingService.screenshot();
-        String checkScreen = commonProcessingService.checkScreenshot(ss);
+        String checkScreen = commonProcessingService.detectScreen();
 
         if (!SESSION_SCREEN_CODES.contains(checkScreen)) {
             return false;
@@ -1,16 +1,29 @@
 package com.ilkeiapps.slik.slikengine.service;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -29,16 +42,95 @@ public class S3Service {
     @Value("${eranyacloud.bucket}")
     private String bucket;
 
-    public void upload(File file) {
-        var credentials = new BasicAWSCredentials(accessKey, secretKey);
-        var endpoint = new AwsClientBuilder.EndpointConfiguration(url, null);
-        var s3Client = AmazonS3ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
+    @Value("${eranyacloud.region:}")
+    private String region;
+
+    // true untuk MinIO / S3 lokal yang tidak mendukung virtual-host bucket
+    @Value("${eranyacloud.path-style:false}")
+    private Boolean pathStyle;
+
+    @Value("${eranyacloud.max-connections:50}")
+    private Integer maxConnections;
+
+    @Value("${eranyacloud.multipart.threshold:16777216}")
+    private Long multipartThreshold;
+
+    @Value("${eranyacloud.multipart.part-size:8388608}")
+    private Long partSize;
+
+    @Value("${eranyacloud.upload.threads:4}")
+    private Integer uploadThreads;
+
+    private AmazonS3 s3Client;
+
+    private TransferManager transferManager;
+
+    private ExecutorService asyncExecutor;
+
+    // client dibuat sekali, connection pool dipakai bersama semua upload
+    @PostConstruct
+    public void init() {
+        var clientConfig = new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withTcpKeepAlive(true);
+
+        var endpoint = new AwsClientBuilder.EndpointConfiguration(url, StringUtils.isBlank(region) ? null : region);
+        s3Client = AmazonS3ClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)))
                 .withEndpointConfiguration(endpoint)
+                .withClientConfiguration(clientConfig)
+                .withPathStyleAccessEnabled(pathStyle)
                 .build();
 
-        var res = s3Client.putObject(new PutObjectRequest(bucket, "cbas/avatar/" + file.getName(), file));
+        AtomicInteger partCounter = new AtomicInteger();
+        transferManager = TransferManagerBuilder.standard()
+                .withS3Client(s3Client)
+                .withMultipartUploadThreshold(multipartThreshold)
+                .withMinimumUploadPartSize(partSize)
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(uploadThreads, r -> {
+                    Thread t = new Thread(r, "s3-part-" + partCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }))
+                .withShutDownThreadPools(true)
+                .build();
+
+        AtomicInteger asyncCounter = new AtomicInteger();
+        asyncExecutor = Executors.newFixedThreadPool(uploadThreads, r -> {
+            Thread t = new Thread(r, "s3-upload-" + asyncCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        asyncExecutor.shutdown();
+        transferManager.shutdownNow(true);
+    }
+
+    public void upload(File file) {
+        upload(file, "cbas/avatar/" + file.getName());
+    }
+
+    // file besar otomatis multipart, part di-upload paralel oleh TransferManager.
+    // gagal upload dilempar ke pemanggil (unchecked), supaya uploadAsync selesai exceptionally
+    public UploadResult upload(File file, String key) {
+        try {
+            var result = transferManager.upload(new PutObjectRequest(bucket, key, file)).waitForUploadResult();
+            log.info("s3 >>> upload {} ke {} selesai", file.getName(), key);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("s3 >>> upload {} terinterupsi", file.getName());
+            throw new AmazonClientException("upload " + key + " interrupted", e);
+        } catch (AmazonClientException e) {
+            log.error("s3 >>> gagal upload {} ke {}", file.getName(), key, e);
+            throw e;
+        }
+    }
 
-        res.getMetadata().getArchiveStatus();
+    public CompletableFuture<UploadResult> uploadAsync(File file, String key) {
+        return CompletableFuture.supplyAsync(() -> upload(file, key), asyncExecutor);
     }
 }
@@ -0,0 +1,136 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.ApiResponse;
+import com.ilkeiapps.slik.slikengine.bean.scoring.GetScoring;
+import com.ilkeiapps.slik.slikengine.bean.scoring.ScoringRules;
+import com.ilkeiapps.slik.slikengine.retrofit.ISCORING;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import retrofit2.Response;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScoringRuleService {
+
+    private final ISCORING scoringApi;
+
+    // lewat dari ttl rules lama tetap dipakai, refresh dipicu di background
+    @Value("${cbas.scoring.ttl-millis:300000}")
+    private Long ttlMillis;
+
+    // jeda minimal antar percobaan refresh saat rules kosong / kadaluarsa
+    @Value("${cbas.scoring.retry-millis:10000}")
+    private Long retryMillis;
+
+    private volatile ScoringRules rules;
+
+    private volatile long lastAttempt;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    // invalidate yang datang saat refresh berjalan: ulangi sekali lagi setelah selesai
+    private final AtomicBoolean refreshAgain = new AtomicBoolean();
+
+    private ExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "scoring-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    // tidak pernah menunggu BE: null hanya jika belum pernah berhasil load sama sekali
+    public ScoringRules getRules() {
+        ScoringRules current = rules;
+        long now = System.currentTimeMillis();
+        boolean stale = current == null || now - current.getLoadedAt() > ttlMillis;
+        if (stale && now - lastAttempt > retryMillis) {
+            refreshAsync();
+        }
+        return current;
+    }
+
+    // dipanggil BE saat konfigurasi scoring berubah
+    public void invalidate() {
+        log.info("scoringRule >>> invalidate dari backend, refresh di background");
+        refreshAsync();
+    }
+
+    public void refreshAsync() {
+        if (refreshing.get()) {
+            refreshAgain.set(true);
+            return;
+        }
+        try {
+            refresher.execute(this::refresh);
+        } catch (Exception e) {
+            log.warn("scoringRule >>> gagal jadwalkan refresh: {}", e.getMessage());
+        }
+    }
+
+    public boolean refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+
+        lastAttempt = System.currentTimeMillis();
+        try {
+            ScoringRules fresh = fetch();
+            if (fresh == null || fresh.getRules().isEmpty()) {
+                if (rules != null) {
+                    log.warn("scoringRule >>> gagal refresh, pakai rules lama");
+                } else {
+                    log.error("scoringRule >>> tidak ada rules sama sekali (BE gagal & no cache)");
+                }
+                return false;
+            }
+
+            rules = fresh;
+            log.info("scoringRule >>> updated, minScore={}, fields={}", fresh.getGlobalMinScore(), fresh.getRules().keySet());
+            return true;
+        } finally {
+            refreshing.set(false);
+            if (refreshAgain.getAndSet(false)) {
+                refreshAsync();
+            }
+        }
+    }
+
+    private ScoringRules fetch() {
+        try {
+            Response<ApiResponse<GetScoring>> resp = scoringApi.getScoring().execute();
+            if (!resp.isSuccessful()) {
+                log.error("scoringRule >>> HTTP {} saat GET scoring", resp.code());
+                return null;
+            }
+
+            ApiResponse<GetScoring> body = resp.body();
+            if (body == null || !Boolean.TRUE.equals(body.getStatus()) || body.getData() == null || body.getData().isEmpty()) {
+                log.error("scoringRule >>> response invalid: {}", body != null ? body.getMessage() : "null body");
+                return null;
+            }
+
+            return ScoringRules.compile(body.getData().get(0), System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("scoringRule >>> exception saat load dari backend", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.ScreenMatch;
+import com.ilkeiapps.slik.slikengine.bean.ScreenTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Core;
+import org.opencv.core.CvException;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScreenClassifierService {
+
+    private final OpenCvTemplateRegistry templateRegistry;
+
+    @Value("${cbas.opencv.classifier.threads:2}")
+    private Integer threads;
+
+    @Value("${cbas.opencv.pyramid.enabled:true}")
+    private Boolean pyramidEnabled;
+
+    // selisih dari threshold yang masih dianggap "dekat" di pencarian kasar
+    @Value("${cbas.opencv.pyramid.margin:0.15}")
+    private Double pyramidMargin;
+
+    @Value("${cbas.opencv.roi:}")
+    private String roiConfig;
+
+    private Map<String, double[]> roiByCode = Map.of();
+
+    private static final int PYRAMID_PADDING = 8;
+
+    private ExecutorService pool;
+
+    private static final Comparator<ScreenMatch> RANKING = Comparator
+            .comparingDouble(ScreenMatch::getMaxVal).reversed()
+            .thenComparingInt(ScreenMatch::getOrder);
+
+    @PostConstruct
+    public void init() {
+        roiByCode = parseRoiConfig(roiConfig);
+
+        int size = threads == null || threads < 1 ? 1 : threads;
+        AtomicInteger seq = new AtomicInteger();
+        // queue dibatasi, kalau penuh task dijalankan di thread pemanggil
+        pool = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "screen-classifier-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    // skor semua template secara paralel, hasil diurutkan dari maxVal tertinggi
+    public List<ScreenMatch> classify(Mat sourceGray, List<ScreenTemplate> templates) {
+        List<ScreenMatch> ranked = new ArrayList<>();
+        if (sourceGray == null || sourceGray.empty() || templates == null || templates.isEmpty()) {
+            return ranked;
+        }
+
+        // source diperkecil sekali, dipakai bersama semua template
+        final Mat sourceSmall = isPyramidEnabled() ? templateRegistry.pyrDown(sourceGray) : null;
+
+        List<Future<ScreenMatch>> futures = new ArrayList<>(templates.size());
+        for (int i = 0; i < templates.size(); i++) {
+            final ScreenTemplate tpl = templates.get(i);
+            final int order = i;
+            futures.add(pool.submit(() -> match(sourceGray, sourceSmall, tpl, order)));
+        }
+
+        // tunggu semua task selesai, source Mat baru boleh di-release pemanggil setelah ini
+        for (Future<ScreenMatch> f : futures) {
+            try {
+                ScreenMatch m = getUninterruptibly(f);
+                if (m != null) {
+                    ranked.add(m);
+                }
+            } catch (ExecutionException e) {
+                log.error("classify >>> error saat matching", e.getCause());
+            }
+        }
+
+        if (sourceSmall != null) {
+            sourceSmall.release();
+        }
+
+        ranked.sort(RANKING);
+        if (log.isDebugEnabled()) {
+            log.debug("classify >>> ranking: {}", ranked);
+        }
+        return ranked;
+    }
+
+    private ScreenMatch getUninterruptibly(Future<ScreenMatch> f) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return f.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // sama seperti pengecekan berurutan lama: template pertama (urutan deklarasi) yang lolos threshold,
+    // ranking maxVal hanya untuk log diagnosa. null kalau tidak ada
+    public ScreenMatch best(Mat sourceGray, List<ScreenTemplate> templates) {
+        ScreenMatch first = null;
+        for (ScreenMatch m : classify(sourceGray, templates)) {
+            if (m.isMatched() && (first == null || m.getOrder() < first.getOrder())) {
+                first = m;
+            }
+        }
+        return first;
+    }
+
+    public ScreenMatch match(Mat sourceGray, ScreenTemplate tpl, int order) {
+        Mat small = isPyramidEnabled() ? templateRegistry.pyrDown(sourceGray) : null;
+        try {
+            return match(sourceGray, small, tpl, order);
+        } finally {
+            if (small != null) {
+                small.release();
+            }
+        }
+    }
+
+    private ScreenMatch match(Mat sourceGray, Mat sourceSmall, ScreenTemplate tpl, int order) {
+        Mat templateGray = templateRegistry.get(tpl.getPath());
+        if (templateGray == null || templateGray.empty()) {
+            log.warn("classify >>> template {} tidak ditemukan / kosong", tpl.getPath());
+            return null;
+        }
+
+        Rect roi = resolveRoi(tpl, sourceGray);
+
+        // 1) cari kasar di setengah resolusi, full resolution hanya kalau skornya mendekati threshold
+        Mat templateSmall = templateRegistry.getPyramid(tpl.getPath());
+        if (sourceSmall != null && templateSmall != null) {
+            Rect roiSmall = clip(new Rect(roi.x / 2, roi.y / 2, roi.width / 2, roi.height / 2), sourceSmall);
+            ScreenMatch coarse = matchIn(sourceSmall, roiSmall, templateSmall, tpl, order, 2);
+            if (coarse != null) {
+                if (coarse.getMaxVal() < tpl.getThreshold() - pyramidMargin) {
+                    return coarse;
+                }
+
+                Rect window = clip(new Rect(coarse.getX() - PYRAMID_PADDING, coarse.getY() - PYRAMID_PADDING,
+                        templateGray.cols() + PYRAMID_PADDING * 2, templateGray.rows() + PYRAMID_PADDING * 2), sourceGray);
+                ScreenMatch fine = matchIn(sourceGray, window, templateGray, tpl, order, 1);
+                if (fine != null) {
+                    return fine;
+                }
+            }
+        }
+
+        // 2) fallback full resolution di area roi
+        return matchIn(sourceGray, roi, templateGray, tpl, order, 1);
+    }
+
+    private ScreenMatch matchIn(Mat source, Rect area, Mat templateGray, ScreenTemplate tpl, int order, int scale) {
+        if (area == null || area.width < templateGray.cols() || area.height < templateGray.rows()) {
+            log.debug("classify >>> template {} lebih besar dari area pencarian", tpl.getPath());
+            return null;
+        }
+
+        Mat region = source.submat(area);
+        Mat result = new Mat();
+        try {
+            Imgproc.matchTemplate(region, templateGray, result, Imgproc.TM_CCOEFF_NORMED);
+            Core.MinMaxLocResult mmr = Core.minMaxLoc(result);
+            return new ScreenMatch(tpl.getCode(), tpl.getPath(), mmr.maxVal,
+                    ((int) mmr.maxLoc.x + area.x) * scale, ((int) mmr.maxLoc.y + area.y) * scale,
+                    tpl.getThreshold(), order);
+        } catch (CvException e) {
+            log.error("classify >>> OpenCV error saat matching {}", tpl.getPath(), e);
+            return null;
+        } finally {
+            result.release();
+            region.release();
+        }
+    }
+
+    private Rect resolveRoi(ScreenTemplate tpl, Mat source) {
+        double[] r = roiByCode.get(tpl.getCode());
+        if (r == null) {
+            if (tpl.isFullFrame()) {
+                return new Rect(0, 0, source.cols(), source.rows());
+            }
+            r = new double[]{tpl.getRoiX(), tpl.getRoiY(), tpl.getRoiWidth(), tpl.getRoiHeight()};
+        }
+
+        int x = (int) Math.floor(r[0] * source.cols());
+        int y = (int) Math.floor(r[1] * source.rows());
+        int w = (int) Math.ceil(r[2] * source.cols());
+        int h = (int) Math.ceil(r[3] * source.rows());
+        return clip(new Rect(x, y, w, h), source);
+    }
+
+    private Rect clip(Rect r, Mat source) {
+        int x = Math.max(0, r.x);
+        int y = Math.max(0, r.y);
+        int w = Math.min(source.cols(), r.x + r.width) - x;
+        int h = Math.min(source.rows(), r.y + r.height) - y;
+        if (w <= 0 || h <= 0) {
+            return null;
+        }
+        return new Rect(x, y, w, h);
+    }
+
+    private boolean isPyramidEnabled() {
+        return Boolean.TRUE.equals(pyramidEnabled);
+    }
+
+    // format: SESS1:0,0,1,0.6;CAP:0.2,0.2,0.6,0.6 (x,y,lebar,tinggi relatif terhadap screenshot)
+    private Map<String, double[]> parseRoiConfig(String config) {
+        Map<String, double[]> map = new HashMap<>();
+        if (config == null || config.isBlank()) {
+            return map;
+        }
+
+        for (String item : config.split(";")) {
+            String[] kv = item.split(":");
+            if (kv.length != 2) {
+                continue;
+            }
+
+            String[] parts = kv[1].split(",");
+            if (parts.length != 4) {
+                log.warn("classify >>> format roi tidak valid: {}", item);
+                continue;
+            }
+
+            try {
+                double[] r = new double[4];
+                for (int i = 0; i < 4; i++) {
+                    r[i] = Double.parseDouble(parts[i].trim());
+                }
+                map.put(kv[0].trim().toUpperCase(), r);
+            } catch (NumberFormatException e) {
+                log.warn("classify >>> format roi tidak valid: {}", item);
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.microsoft.playwright.Page;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class ScreenSignatureService {
+
+    private static final String NONE = "NONE";
+
+    // format: KODE|selector;KODE|selector
+    @Value("${cbas.screen.signature.selectors:LOGIN|input[data-validation-label='ID']}")
+    private String selectorConfig;
+
+    // format: KODE|teks;KODE|teks (case-insensitive, dicari di innerText body)
+    @Value("${cbas.screen.signature.texts:UTD1|under maintenance}")
+    private String textConfig;
+
+    @Value("${cbas.screen.signature.enabled:true}")
+    private Boolean enabled;
+
+    private List<Map<String, String>> selectors = List.of();
+    private List<Map<String, String>> texts = List.of();
+
+    private static final String SCRIPT = """
+            (cfg) => {
+                try {
+                    const docs = [];
+                    let blocked = false;
+                    const walk = (w, depth) => {
+                        let d = null;
+                        try { d = w.document; } catch (e) { blocked = true; return; }
+                        if (!d) return;
+                        docs.push(d);
+                        if (depth > 4) return;
+                        for (let i = 0; i < w.frames.length; i++) walk(w.frames[i], depth + 1);
+                    };
+                    walk(window, 0);
+
+                    const visible = (el) => !!(el && (el.offsetWidth || el.offsetHeight || el.getClientRects().length));
+
+                    for (const s of cfg.selectors) {
+                        for (const d of docs) {
+                            if (visible(d.querySelector(s.value))) return { code: s.code };
+                        }
+                    }
+
+                    if (cfg.texts.length) {
+                        for (const d of docs) {
+                            const txt = ((d.body && d.body.innerText) || '').toLowerCase();
+                            for (const t of cfg.texts) {
+                                if (txt.includes(t.value)) return { code: t.code };
+                            }
+                        }
+                    }
+
+                    return { code: null, complete: !blocked };
+                } catch (e) {
+                    return { code: null };
+                }
+            }
+            """;
+
+    @PostConstruct
+    public void init() {
+        selectors = parse(selectorConfig, false);
+        texts = parse(textConfig, true);
+        log.info("screenSignature >>> {} selector, {} text marker", selectors.size(), texts.size());
+    }
+
+    // hasil: kode layar kalau ada signature DOM yang cocok, NONE hanya kalau semua kode di codes punya signature
+    // dan tidak ada yang cocok, selain itu null (lanjut OpenCV)
+    public String detect(Page page, Collection<String> codes) {
+        if (!Boolean.TRUE.equals(enabled) || page == null || page.isClosed()) {
+            return null;
+        }
+
+        try {
+            Map<String, Object> cfg = new HashMap<>();
+            cfg.put("selectors", selectors);
+            cfg.put("texts", texts);
+
+            Object res = page.evaluate(SCRIPT, cfg);
+            if (!(res instanceof Map<?, ?> map)) {
+                return null;
+            }
+
+            Object code = map.get("code");
+            if (code != null) {
+                log.info("screenSignature >>> DOM match: {}", code);
+                return code.toString();
+            }
+
+            // frame cross-origin tidak bisa dibaca, jadi hasil negatif belum tentu benar
+            if (Boolean.TRUE.equals(map.get("complete")) && coversAll(codes)) {
+                log.debug("screenSignature >>> semua kode punya signature & tidak ada yang cocok, skip OpenCV");
+                return NONE;
+            }
+        } catch (Exception e) {
+            log.warn("screenSignature >>> evaluate gagal, fallback OpenCV: {}", e.getMessage());
+        }
+
+        return null;
+    }
+
+    private boolean coversAll(Collection<String> codes) {
+        if (codes == null || codes.isEmpty()) {
+            return false;
+        }
+        Set<String> covered = new HashSet<>();
+        selectors.forEach(m -> covered.add(m.get("code")));
+        texts.forEach(m -> covered.add(m.get("code")));
+        return covered.containsAll(codes);
+    }
+
+    private List<Map<String, String>> parse(String config, boolean lowerCase) {
+        List<Map<String, String>> list = new ArrayList<>();
+        if (config == null || config.isBlank()) {
+            return list;
+        }
+
+        for (String item : config.split(";")) {
+            int idx = item.indexOf('|');
+            if (idx <= 0 || idx == item.length() - 1) {
+                log.warn("screenSignature >>> format signature tidak valid: {}", item);
+                continue;
+            }
+
+            String value = item.substring(idx + 1).trim();
+            list.add(Map.of("code", item.substring(0, idx).trim().toUpperCase(),
+                    "value", lowerCase ? value.toLowerCase() : value));
+        }
+        return list;
+    }
+}
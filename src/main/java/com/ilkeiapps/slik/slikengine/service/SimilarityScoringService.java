@@ -0,0 +1,163 @@
+package com.ilkeiapps.slik.slikengine.service;
+
+import com.ilkeiapps.slik.slikengine.bean.AppRequest;
+import com.ilkeiapps.slik.slikengine.bean.CombinationRow;
+import com.ilkeiapps.slik.slikengine.bean.scoring.ScoringField;
+import com.ilkeiapps.slik.slikengine.bean.scoring.ScoringRules;
+import com.ilkeiapps.slik.slikengine.utility.JaroWinkler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class SimilarityScoringService {
+
+    @Value("${cbas.scoring.applicant-cache:256}")
+    private Integer applicantCacheSize;
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    // kolom tabel hasil SLIK per jenis debitur, cell -1 = td pertama tabel alamat
+    private record Column(ScoringField field, int cell) {
+    }
+
+    private static final List<Column> COLUMNS_IND = List.of(
+            new Column(ScoringField.NIK, 1),
+            new Column(ScoringField.NAMA, 2),
+            new Column(ScoringField.MDN, 3),
+            new Column(ScoringField.DOB, 6),
+            new Column(ScoringField.POB, 5),
+            new Column(ScoringField.ADDR, -1));
+
+    private static final List<Column> COLUMNS_COM = List.of(
+            new Column(ScoringField.NIK, 1),
+            new Column(ScoringField.NAMA, 2),
+            new Column(ScoringField.DOB, 4),
+            new Column(ScoringField.POB, 3),
+            new Column(ScoringField.ADDR, -1));
+
+    // data pemohon yang sudah dinormalisasi per field, urutannya sama dengan columns
+    private record Applicant(List<Column> columns, List<ScoringField> fields, int minCells, String[] values) {
+    }
+
+    private Map<String, Applicant> applicants;
+
+    // cari baris pertama yang skornya >= globalMinScore, -1 jika tidak ada
+    public int findMatch(List<CombinationRow> rows, AppRequest app, ScoringRules rules) {
+        if (rows == null || rows.isEmpty() || rules == null) {
+            return -1;
+        }
+
+        Applicant applicant = getApplicant(app);
+        int maxPossible = rules.maxPossible(applicant.fields());
+        if (maxPossible < rules.getGlobalMinScore()) {
+            log.warn("scoring >>> {} skor maksimal {} tidak bisa mencapai minScore {}", app.getNoRefCounter(), maxPossible, rules.getGlobalMinScore());
+            return -1;
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            int scr = score(rows.get(i), applicant, rules, maxPossible);
+            log.debug("scoring >>> {} row {} totalScore={} (minNeed={})", app.getNoRefCounter(), rows.get(i).getIndex(), scr, rules.getGlobalMinScore());
+            if (scr >= rules.getGlobalMinScore()) {
+                log.info("scoring >>> {} row {} match, totalScore={} (minNeed={})", app.getNoRefCounter(), rows.get(i).getIndex(), scr, rules.getGlobalMinScore());
+                return i;
+            }
+        }
+
+        log.info("scoring >>> {} tidak ada baris yang mencapai minScore {} dari {} baris", app.getNoRefCounter(), rules.getGlobalMinScore(), rows.size());
+        return -1;
+    }
+
+    // berhenti begitu minScore tercapai atau sudah tidak mungkin tercapai
+    private int score(CombinationRow row, Applicant applicant, ScoringRules rules, int maxPossible) {
+        if (!row.isHasTbody()) {
+            return 0;
+        }
+
+        boolean hasData = row.getCells().size() >= applicant.minCells();
+        int min = rules.getGlobalMinScore();
+        int scr = 0;
+        int remaining = maxPossible;
+
+        for (int i = 0; i < applicant.columns().size(); i++) {
+            Column column = applicant.columns().get(i);
+            ScoringRules.Rule rule = rules.get(column.field());
+            if (rule == null) {
+                continue;
+            }
+            remaining -= rule.value();
+
+            String source;
+            if (column.cell() < 0) {
+                source = row.getAddress();
+            } else {
+                source = hasData ? row.cell(column.cell()) : "";
+            }
+
+            if (matches(rule, column.field().normalize(source), applicant.values()[i])) {
+                scr += rule.value();
+            }
+
+            if (scr >= min || scr + remaining < min) {
+                return scr;
+            }
+        }
+        return scr;
+    }
+
+    private boolean matches(ScoringRules.Rule rule, String source, String target) {
+        if (source.length() <= 2 || target.length() <= 2) {
+            return false;
+        }
+        return JaroWinkler.similarity(source, target) >= rule.minScore();
+    }
+
+    private Applicant getApplicant(AppRequest app) {
+        String key = app.getId() + ":" + app.getNoRefCounter() + ":" + app.getLastUpdate();
+        return getApplicants().computeIfAbsent(key, k -> buildApplicant(app));
+    }
+
+    private Applicant buildApplicant(AppRequest app) {
+        boolean individual = "IND".equals(app.getAppRequestCustType());
+        List<Column> columns = individual ? COLUMNS_IND : COLUMNS_COM;
+
+        String[] values = new String[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            ScoringField field = columns.get(i).field();
+            values[i] = field.normalize(rawValue(app, field, individual));
+        }
+        List<ScoringField> fields = columns.stream().map(Column::field).toList();
+        return new Applicant(columns, fields, individual ? 8 : 5, values);
+    }
+
+    private String rawValue(AppRequest app, ScoringField field, boolean individual) {
+        return switch (field) {
+            case NIK -> individual ? app.getAppRequestKtp() : app.getAppRequestNpwp();
+            case NAMA -> app.getAppRequestCustName();
+            case MDN -> app.getAppRequestMotherName();
+            case DOB -> app.getAppRequestDob() == null ? "" : app.getAppRequestDob().format(FORMAT_DATE);
+            case POB -> app.getAppRequestPob();
+            case ADDR -> app.getAppRequestHomeAddress();
+        };
+    }
+
+    private synchronized Map<String, Applicant> getApplicants() {
+        if (applicants == null) {
+            int max = applicantCacheSize;
+            applicants = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Applicant> eldest) {
+                    return size() > max;
+                }
+            });
+        }
+        return applicants;
+    }
+}
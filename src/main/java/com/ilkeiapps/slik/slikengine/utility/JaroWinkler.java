@@ -0,0 +1,103 @@
+package com.ilkeiapps.slik.slikengine.utility;
+
+import java.util.Arrays;
+
+// Jaro-Winkler dengan hasil yang sama seperti commons-text JaroWinklerSimilarity,
+// tapi buffer match dipakai ulang per thread sehingga tidak ada alokasi per perbandingan
+public final class JaroWinkler {
+
+    private static final double SCALING_FACTOR = 0.1d;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static final class Buffers {
+        int[] matchIndexes = new int[64];
+        boolean[] matchFlags = new boolean[64];
+
+        void ensure(int minLen, int maxLen) {
+            if (matchIndexes.length < minLen) {
+                matchIndexes = new int[Math.max(minLen, matchIndexes.length * 2)];
+            }
+            if (matchFlags.length < maxLen) {
+                matchFlags = new boolean[Math.max(maxLen, matchFlags.length * 2)];
+            }
+        }
+    }
+
+    private JaroWinkler() {
+    }
+
+    public static double similarity(CharSequence left, CharSequence right) {
+        if (left == null || right == null || left.isEmpty() || right.isEmpty()) {
+            return 0d;
+        }
+        if (left.length() == right.length() && left.toString().contentEquals(right)) {
+            return 1d;
+        }
+
+        CharSequence max;
+        CharSequence min;
+        if (left.length() > right.length()) {
+            max = left;
+            min = right;
+        } else {
+            max = right;
+            min = left;
+        }
+
+        int minLen = min.length();
+        int maxLen = max.length();
+        int range = Math.max(maxLen / 2 - 1, 0);
+
+        Buffers buf = BUFFERS.get();
+        buf.ensure(minLen, maxLen);
+        int[] matchIndexes = buf.matchIndexes;
+        boolean[] matchFlags = buf.matchFlags;
+        Arrays.fill(matchIndexes, 0, minLen, -1);
+        Arrays.fill(matchFlags, 0, maxLen, false);
+
+        int matches = 0;
+        for (int mi = 0; mi < minLen; mi++) {
+            char c1 = min.charAt(mi);
+            for (int xi = Math.max(mi - range, 0), xn = Math.min(mi + range + 1, maxLen); xi < xn; xi++) {
+                if (!matchFlags[xi] && c1 == max.charAt(xi)) {
+                    matchIndexes[mi] = xi;
+                    matchFlags[xi] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0d;
+        }
+
+        // urutan karakter yang match di kedua string dibandingkan langsung, tanpa array perantara
+        int transpositions = 0;
+        for (int i = 0, xi = 0; i < minLen; i++) {
+            if (matchIndexes[i] == -1) {
+                continue;
+            }
+            while (!matchFlags[xi]) {
+                xi++;
+            }
+            if (min.charAt(i) != max.charAt(xi)) {
+                transpositions++;
+            }
+            xi++;
+        }
+
+        int prefix = 0;
+        for (int mi = 0, n = Math.min(4, minLen); mi < n; mi++) {
+            if (left.charAt(mi) == right.charAt(mi)) {
+                prefix++;
+            } else {
+                break;
+            }
+        }
+
+        double m = matches;
+        double j = (m / left.length() + m / right.length() + (m - (double) transpositions / 2) / m) / 3;
+        return j < 0.7d ? j : j + SCALING_FACTOR * prefix * (1d - j);
+    }
+}
@@ -24,7 +24,7 @@ public class CustomerAddFileChangeListener implements FileChangeListener {
             for(ChangedFile file: files.getFiles()) {
                 if (file.getType().equals(ChangedFile.Type.ADD)) {
                     log.info("fiel >>> " + file.getFile().getAbsolutePath() + "-" + file.getFile().getName());
-                    //extractIdebService.extract(file.getFile());
+                    extractIdebService.extract(file.getFile());
                 }
             }
         }
@@ -0,0 +1,48 @@
+package com.ilkeiapps.slik.slikengine.utility;
+
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JaroWinklerTest {
+
+    private final JaroWinklerSimilarity reference = new JaroWinklerSimilarity();
+
+    @Test
+    void sameAsCommonsTextOnRandomInput() {
+        Random rnd = new Random(20240601L);
+        for (int i = 0; i < 200_000; i++) {
+            // alfabet kecil supaya banyak match & transposisi ganjil
+            String left = randomString(rnd, 1 + rnd.nextInt(14), 2 + rnd.nextInt(6));
+            String right = randomString(rnd, 1 + rnd.nextInt(14), 2 + rnd.nextInt(6));
+            assertEquals(reference.apply(left, right), JaroWinkler.similarity(left, right), 0d, left + " / " + right);
+        }
+    }
+
+    @Test
+    void sameAsCommonsTextOnKnownPairs() {
+        String[][] pairs = {
+                {"MARTHA", "MARHTA"},
+                {"DIXON", "DICKSONX"},
+                {"BBDCDBBBA", "CCBADC"},
+                {"SITI AMINAH", "SITI AMINA"},
+                {"JL. MERDEKA NO 1", "JALAN MERDEKA NO. 1"},
+                {"A", "B"},
+                {"SAMA", "SAMA"}
+        };
+        for (String[] p : pairs) {
+            assertEquals(reference.apply(p[0], p[1]), JaroWinkler.similarity(p[0], p[1]), 0d, p[0] + " / " + p[1]);
+        }
+    }
+
+    private static String randomString(Random rnd, int len, int alphabet) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            sb.append((char) ('A' + rnd.nextInt(alphabet)));
+        }
+        return sb.toString();
+    }
+}